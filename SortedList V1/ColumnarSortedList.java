@@ -0,0 +1,589 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Class that stores a sorted to-do list in columns of primitive arrays instead
+ * of linked ToDoItem objects, for lists with millions of items. It is a separate
+ * class with the same core operations as SortedList rather than a mode that a
+ * SortedList can be switched into, so a SortedList is copied into it with from.
+ *
+ * The columns are kept in list order, so position i of every column belongs to
+ * the i-th item from the head. Walking the list or a range of it reads each
+ * column from front to back with no pointers to follow. Each item's name, due
+ * date and notes are packed one after another as UTF-8 bytes in a single byte
+ * array, so an item costs nine bytes plus its text, and a few more for the name
+ * table, instead of a ToDoItem object and four String objects. ToDoItems are
+ * only created when getItem is called.
+ *
+ * Inserting finds the position with a binary search and shifts the later
+ * entries of each column over by one, and removing shifts them back, so single
+ * changes take O(n) array copies. That suits lists that are read far more than
+ * they are changed. Many items are better added with append, when they come in
+ * sorted order, or insertAll, which merges a batch in one pass. The text of a
+ * removed item is left in place until half the text is unused, and then the
+ * text is packed again.
+ *
+ * Names are looked up through an open addressing table of positions that
+ * compares the packed bytes, so finding an item by name takes O(1) without
+ * creating Strings. Lateness is not stored, since it changes with the date; it
+ * is worked out from the sort key and the list's clock when it is read.
+ *
+ * @author Jacob
+ */
+public class ColumnarSortedList {
+
+	private static final byte DONE = 1; // flag bit set when the item is done
+
+	private String listName; // the name of the list
+	private int size; // the size of the list
+	private int[] sortKeys; // each item's sort key, in list order
+	private byte[] flags; // each item's done flag
+	private int[] textStart; // where each item's text starts in the text array
+	private byte[] text; // the packed names, due dates and notes of the items
+	private int textSize; // the number of bytes of text in use
+	private int textGarbage; // the bytes of text left behind by removed items
+	private int[] names; // the position plus one of the first item with each name, 0 for an empty slot
+	private DayClock clock; // the clock that decides which items are late
+
+	/**
+	 * Constructor that initializes the columnar list and its fields
+	 *
+	 * @param the name of the list
+	 */
+	public ColumnarSortedList(String listName) {
+		this.listName = listName;
+		clock = DayClock.system();
+		clear();
+	}
+
+	/**
+	 * Retrieves the name of the list
+	 *
+	 * @return string with the name of the list
+	 */
+	public String getListName() {
+		return listName;
+	}
+
+	/**
+	 * Retrieves the size of the list
+	 *
+	 * @return the size of the list
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Sets the clock used to decide which items are late
+	 *
+	 * @param clock: the clock to read today's date from
+	 */
+	public void setClock(DayClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Function that copies the items of a SortedList into columns, in one walk of
+	 * the list
+	 *
+	 * @param list: the list to copy
+	 * @return a new columnar list with the list's name, clock and items
+	 */
+	public static ColumnarSortedList from(SortedList list) {
+		ColumnarSortedList columns = new ColumnarSortedList(list.getListName());
+		columns.setClock(list.getClock());
+		columns.grow(list.getSize());
+		for (ToDoItem toDoItem = list.getHead(); toDoItem != null; toDoItem = toDoItem.getNext()) {
+			columns.append(toDoItem);
+		}
+		return columns;
+	}
+
+	/**
+	 * Inserts a ToDoItem's values into their sorted position. Items with the same
+	 * sort key stay in the order they were entered. The ToDoItem itself is not
+	 * kept.
+	 *
+	 * @param the ToDoItem being added to the list
+	 * @return true if correctly inserted
+	 */
+	public boolean insert(ToDoItem toDoItem) {
+		int index = firstAtLeast(toDoItem.getSortKey() + 1); // after every equal key
+		grow(size + 1);
+		System.arraycopy(sortKeys, index, sortKeys, index + 1, size - index);
+		System.arraycopy(flags, index, flags, index + 1, size - index);
+		System.arraycopy(textStart, index, textStart, index + 1, size - index);
+		store(index, toDoItem);
+		size++;
+		if (size * 2 > names.length) {
+			indexNames();
+			return true;
+		}
+		for (int slot = 0; slot < names.length; slot++) {
+			if (names[slot] > index) { // the entries from index on moved back by one
+				names[slot]++;
+			}
+		}
+		addName(index);
+		return true;
+	}
+
+	/**
+	 * Removes the item with a specified name closest to the head
+	 *
+	 * @param the name of the item to be removed
+	 * @return true if the item is found and removed and false otherwise
+	 */
+	public boolean remove(String name) {
+		int index = indexOf(name);
+		if (index < 0) {
+			return false;
+		}
+		removeName(index);
+		int start = textStart[index];
+		textGarbage += skipString(skipString(skipString(start))) - start;
+		System.arraycopy(sortKeys, index + 1, sortKeys, index, size - index - 1);
+		System.arraycopy(flags, index + 1, flags, index, size - index - 1);
+		System.arraycopy(textStart, index + 1, textStart, index, size - index - 1);
+		size--;
+		for (int slot = 0; slot < names.length; slot++) {
+			if (names[slot] > index + 1) { // the entries after index moved up by one
+				names[slot]--;
+			}
+		}
+		// the next item with the name, if there is one, is now found by it
+		byte[] wanted = name.getBytes(StandardCharsets.UTF_8);
+		for (int other = index; other < size; other++) {
+			int otherStart = textStart[other];
+			if (readInt(otherStart) == wanted.length
+					&& Arrays.equals(text, otherStart + 4, otherStart + 4 + wanted.length, wanted, 0, wanted.length)) {
+				addName(other);
+				break;
+			}
+		}
+		if (textGarbage > textSize / 2) {
+			compactText();
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a ToDoItem's values after the last item. The ToDoItem itself is not
+	 * kept.
+	 *
+	 * @param toDoItem: the ToDoItem being added, which must not sort before the
+	 *                  last item
+	 * @return true if correctly added
+	 * @throws IllegalArgumentException if the item sorts before the last item
+	 */
+	public boolean append(ToDoItem toDoItem) {
+		if (size > 0 && toDoItem.getSortKey() < sortKeys[size - 1]) {
+			throw new IllegalArgumentException("Item sorts before the end of the list: " + toDoItem.getName());
+		}
+		grow(size + 1);
+		store(size, toDoItem);
+		size++;
+		if (size * 2 > names.length) {
+			indexNames();
+		} else {
+			addName(size - 1);
+		}
+		return true;
+	}
+
+	/**
+	 * Merges a group of ToDoItems into the columns at once, as when loading more
+	 * items in bulk. The group is sorted on its own and then merged with the
+	 * columns from the back, so every entry moves at most once, and the name table
+	 * is built again in the same linear time.
+	 *
+	 * @param toDoItems: the ToDoItems being added to the list
+	 * @return true if the items were inserted and false if there were none
+	 */
+	public boolean insertAll(Collection<ToDoItem> toDoItems) {
+		if (toDoItems.isEmpty()) {
+			return false;
+		}
+		ToDoItem[] batch = toDoItems.toArray(new ToDoItem[0]);
+		Arrays.sort(batch, (first, second) -> Integer.compare(first.getSortKey(), second.getSortKey()));
+		grow(size + batch.length);
+		int old = size - 1; // the next old entry to move, from the back
+		int next = batch.length - 1; // the next new item to place, from the back
+		for (int index = size + batch.length - 1; next >= 0; index--) {
+			// on equal keys the new item goes after the old entries
+			if (old >= 0 && sortKeys[old] > batch[next].getSortKey()) {
+				sortKeys[index] = sortKeys[old];
+				flags[index] = flags[old];
+				textStart[index] = textStart[old];
+				old--;
+			} else {
+				store(index, batch[next--]);
+			}
+		}
+		size += batch.length;
+		indexNames();
+		return true;
+	}
+
+	/**
+	 * Finds the position of the item with a specified name closest to the head
+	 * through the name table. The name is compared against the packed bytes, so
+	 * no Strings are created while searching.
+	 *
+	 * @param the name of the item to be found
+	 * @return the item's position from the head, or -1 if it is not in the list
+	 */
+	public int indexOf(String name) {
+		if (name == null) {
+			return -1;
+		}
+		byte[] wanted = name.getBytes(StandardCharsets.UTF_8);
+		int mask = names.length - 1;
+		for (int slot = hash(wanted, 0, wanted.length) & mask;; slot = (slot + 1) & mask) {
+			int index = names[slot] - 1;
+			if (index < 0) {
+				return -1;
+			}
+			int start = textStart[index];
+			int length = readInt(start);
+			if (length == wanted.length && Arrays.equals(text, start + 4, start + 4 + length, wanted, 0, length)) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a requested to do item is in the list
+	 *
+	 * @param the name of the ToDoItem
+	 * @return true if found and false otherwise
+	 */
+	public boolean contains(String name) {
+		return indexOf(name) >= 0;
+	}
+
+	/**
+	 * Finds the first position whose sort key is at least the given key with a
+	 * binary search
+	 *
+	 * @param sortKey: the smallest sort key wanted
+	 * @return the position of the first such item, or the size if there is none
+	 */
+	public int firstAtLeast(int sortKey) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sortKeys[middle] < sortKey) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the first position of the items due on or after a day. The items due
+	 * between two days are the positions from rangeStart(startDay) up to but not
+	 * including rangeStart(endDay + 1).
+	 *
+	 * @param day: the due day, counted from 1/1/1970
+	 * @return the position of the first item due on or after the day
+	 */
+	public int rangeStart(int day) {
+		return firstAtLeast(day * 10);
+	}
+
+	/**
+	 * Gets the sort key of the item at a position
+	 *
+	 * @param index: the position from the head
+	 * @return the item's sort key
+	 */
+	public int getSortKey(int index) {
+		checkIndex(index);
+		return sortKeys[index];
+	}
+
+	/**
+	 * Gets the priority of the item at a position, which is the last digit of its
+	 * sort key
+	 *
+	 * @param index: the position from the head
+	 * @return the item's priority
+	 */
+	public int getPriority(int index) {
+		checkIndex(index);
+		return Math.floorMod(sortKeys[index], 10);
+	}
+
+	/**
+	 * Gets the isDone variable of the item at a position
+	 *
+	 * @param index: the position from the head
+	 * @return the item's isDone variable
+	 */
+	public boolean getIsDone(int index) {
+		checkIndex(index);
+		return (flags[index] & DONE) != 0;
+	}
+
+	/**
+	 * Sets the isDone variable of the item at a position
+	 *
+	 * @param index:     the position from the head
+	 * @param newIsDone: the new value
+	 */
+	public void setIsDone(int index, boolean newIsDone) {
+		checkIndex(index);
+		flags[index] = (byte) (newIsDone ? flags[index] | DONE : flags[index] & ~DONE);
+	}
+
+	/**
+	 * Checks if the item at a position is late, which it is from the start of its
+	 * due day
+	 *
+	 * @param index: the position from the head
+	 * @return true if today is on or after the item's due day
+	 */
+	public boolean getIsLate(int index) {
+		checkIndex(index);
+		return Math.floorDiv(sortKeys[index], 10) <= clock.today();
+	}
+
+	/**
+	 * Gets the name of the item at a position
+	 *
+	 * @param index: the position from the head
+	 * @return the item's name
+	 */
+	public String getName(int index) {
+		checkIndex(index);
+		return readString(textStart[index]);
+	}
+
+	/**
+	 * Creates a ToDoItem holding the values of the item at a position. The item is
+	 * a copy, so changing it does not change the list.
+	 *
+	 * @param index: the position from the head
+	 * @return a new ToDoItem with the item's values
+	 */
+	public ToDoItem getItem(int index) {
+		checkIndex(index);
+		int start = textStart[index];
+		String name = readString(start);
+		start = skipString(start);
+		String dueDate = readString(start);
+		String notes = readString(skipString(start));
+		ToDoItem toDoItem = new ToDoItem(name, dueDate, getPriority(index), notes, sortKeys[index]);
+		toDoItem.setIsDone(getIsDone(index));
+		return toDoItem;
+	}
+
+	/**
+	 * Clears the to-do list and resets its variables
+	 */
+	public void clear() {
+		size = 0;
+		sortKeys = new int[16];
+		flags = new byte[16];
+		textStart = new int[16];
+		text = new byte[256];
+		textSize = 0;
+		textGarbage = 0;
+		names = new int[32];
+	}
+
+	/**
+	 * Writes a ToDoItem's values into a position of the columns
+	 *
+	 * @param index:    the position to write
+	 * @param toDoItem: the item whose values are stored
+	 */
+	private void store(int index, ToDoItem toDoItem) {
+		sortKeys[index] = toDoItem.getSortKey();
+		flags[index] = toDoItem.getIsDone() ? DONE : 0;
+		textStart[index] = textSize;
+		writeString(toDoItem.getName());
+		writeString(toDoItem.getDueDate());
+		writeString(toDoItem.getNotes());
+	}
+
+	/**
+	 * Makes sure the columns can hold a number of items
+	 *
+	 * @param capacity: the number of items needed
+	 */
+	private void grow(int capacity) {
+		if (capacity > sortKeys.length) {
+			int length = Math.max(capacity, sortKeys.length * 2);
+			sortKeys = Arrays.copyOf(sortKeys, length);
+			flags = Arrays.copyOf(flags, length);
+			textStart = Arrays.copyOf(textStart, length);
+		}
+	}
+
+	/**
+	 * Appends a string to the text array as its length followed by its UTF-8
+	 * bytes, with a length of -1 for null
+	 *
+	 * @param string: the string to append
+	 */
+	private void writeString(String string) {
+		byte[] bytes = (string == null) ? null : string.getBytes(StandardCharsets.UTF_8);
+		int length = (bytes == null) ? 0 : bytes.length;
+		if (textSize + 4 + length > text.length) {
+			text = Arrays.copyOf(text, Math.max(textSize + 4 + length, text.length * 2));
+		}
+		writeInt(textSize, (bytes == null) ? -1 : length);
+		if (bytes != null) {
+			System.arraycopy(bytes, 0, text, textSize + 4, length);
+		}
+		textSize += 4 + length;
+	}
+
+	/**
+	 * Reads a string from the text array
+	 *
+	 * @param start: where the string's length is stored
+	 * @return the string, or null
+	 */
+	private String readString(int start) {
+		int length = readInt(start);
+		return (length < 0) ? null : new String(text, start + 4, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Finds where the string after the one at start begins
+	 *
+	 * @param start: where a string's length is stored
+	 * @return where the next string's length is stored
+	 */
+	private int skipString(int start) {
+		return start + 4 + Math.max(readInt(start), 0);
+	}
+
+	/**
+	 * Builds the name table again from every position, sized to keep it at most
+	 * half full
+	 */
+	private void indexNames() {
+		names = new int[Math.max(32, Integer.highestOneBit(Math.max(1, size) * 4 - 1))];
+		for (int index = 0; index < size; index++) {
+			addName(index);
+		}
+	}
+
+	/**
+	 * Adds a position to the name table unless an earlier item has the same name,
+	 * replacing a later item with the same name. Items with no name are not looked
+	 * up, so they are left out.
+	 *
+	 * @param index: the position
+	 */
+	private void addName(int index) {
+		int start = textStart[index];
+		int length = readInt(start);
+		if (length < 0) {
+			return;
+		}
+		int mask = names.length - 1;
+		for (int slot = hash(text, start + 4, length) & mask;; slot = (slot + 1) & mask) {
+			int other = names[slot] - 1;
+			if (other < 0) {
+				names[slot] = index + 1;
+				return;
+			}
+			int otherStart = textStart[other];
+			if (readInt(otherStart) == length
+					&& Arrays.equals(text, otherStart + 4, otherStart + 4 + length, text, start + 4, start + 4 + length)) {
+				if (index < other) { // the earlier item is the one found by name
+					names[slot] = index + 1;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Takes a position out of the name table, moving the entries after it in its
+	 * run of full slots back so every entry can still be reached from its own slot
+	 *
+	 * @param index: the position, which is in the table
+	 */
+	private void removeName(int index) {
+		int start = textStart[index];
+		int mask = names.length - 1;
+		int hole = hash(text, start + 4, readInt(start)) & mask;
+		while (names[hole] != index + 1) {
+			hole = (hole + 1) & mask;
+		}
+		for (int slot = (hole + 1) & mask; names[slot] != 0; slot = (slot + 1) & mask) {
+			int otherStart = textStart[names[slot] - 1];
+			int home = hash(text, otherStart + 4, readInt(otherStart)) & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) { // the hole is between its home and here
+				names[hole] = names[slot];
+				hole = slot;
+			}
+		}
+		names[hole] = 0;
+	}
+
+	/**
+	 * Packs the text of the items still in the list to the front of a new array,
+	 * dropping the text of removed items
+	 */
+	private void compactText() {
+		byte[] packed = new byte[Math.max(256, textSize - textGarbage)];
+		int packedSize = 0;
+		for (int index = 0; index < size; index++) {
+			int start = textStart[index];
+			int length = skipString(skipString(skipString(start))) - start;
+			System.arraycopy(text, start, packed, packedSize, length);
+			textStart[index] = packedSize;
+			packedSize += length;
+		}
+		text = packed;
+		textSize = packedSize;
+		textGarbage = 0;
+	}
+
+	/**
+	 * Function that hashes a run of bytes, spreading the bits so the low bits used
+	 * for the slot depend on all of them
+	 *
+	 * @param bytes:  the array holding the bytes
+	 * @param from:   the first byte
+	 * @param length: the number of bytes
+	 * @return the hash
+	 */
+	private static int hash(byte[] bytes, int from, int length) {
+		int hash = 1;
+		for (int i = from; i < from + length; i++) {
+			hash = 31 * hash + bytes[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private int readInt(int position) {
+		return ((text[position] & 0xFF) << 24) | ((text[position + 1] & 0xFF) << 16)
+				| ((text[position + 2] & 0xFF) << 8) | (text[position + 3] & 0xFF);
+	}
+
+	private void writeInt(int position, int value) {
+		text[position] = (byte) (value >>> 24);
+		text[position + 1] = (byte) (value >>> 16);
+		text[position + 2] = (byte) (value >>> 8);
+		text[position + 3] = (byte) value;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that creates a sorted list for a specific category that many threads can
+ * insert into, remove from and read at the same time. Items are ordered the same
+ * way as in SortedList: by due date and priority, with the order entered as the
+ * tie breaker.
+ *
+ * The items are held in a lock-free skip list keyed on the item's sort key and an
+ * insertion number, so threads working on different parts of the list do not
+ * block each other. Lookups by name go through a concurrent hash index that only
+ * locks the entries for a single name. Iteration is weakly consistent: it never
+ * fails because of a concurrent change and sees each item at most once, but may
+ * or may not see changes made after it started.
+ *
+ * Items in this list are not linked through ToDoItem.getNext and getPrev, since
+ * those links can not be changed safely by more than one thread. Renaming an
+ * item while it is in this list is not tracked.
+ *
+ * @author Jacob
+ */
+public class ConcurrentSortedList implements Iterable<ToDoItem> {
+
+	private final String listName; // the name of the list
+	private final ConcurrentSkipListMap<Long, ToDoItem> items; // the items in sorted order
+	private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ToDoItem>> names; // items by name, in list order
+	private final AtomicLong sequence; // the order items were entered, used as the tie breaker
+	private final AtomicInteger size; // the size of the list
+
+	/**
+	 * Constructor that initializes the concurrent sorted list and its fields
+	 *
+	 * @param the name of the list
+	 */
+	public ConcurrentSortedList(String listName) {
+		this.listName = listName;
+		items = new ConcurrentSkipListMap<>();
+		names = new ConcurrentHashMap<>();
+		sequence = new AtomicLong();
+		size = new AtomicInteger();
+	}
+
+	/**
+	 * Retrieves the name of the list
+	 *
+	 * @return string with the name of the list
+	 */
+	public String getListName() {
+		return listName;
+	}
+
+	/**
+	 * Retrieves the size of the list
+	 *
+	 * @return the size of the list
+	 */
+	public int getSize() {
+		return size.get();
+	}
+
+	/**
+	 * Retrieves the first item in the list
+	 *
+	 * @return the ToDoItem that is due first, or null if the list is empty
+	 */
+	public ToDoItem getHead() {
+		Map.Entry<Long, ToDoItem> first = items.firstEntry();
+		return (first == null) ? null : first.getValue();
+	}
+
+	/**
+	 * Retrieves the last item in the list
+	 *
+	 * @return the ToDoItem that is due last, or null if the list is empty
+	 */
+	public ToDoItem getTail() {
+		Map.Entry<Long, ToDoItem> last = items.lastEntry();
+		return (last == null) ? null : last.getValue();
+	}
+
+	/**
+	 * Inserts a ToDoItem into its correct position in the list. The item's sort key
+	 * fills the high half of its position key and the insertion number the low
+	 * half, so items with the same key stay in the order they were entered.
+	 *
+	 * @param the ToDoItem being added to the list
+	 * @return true if correctly inserted and false if the item has no name
+	 */
+	public boolean insert(ToDoItem toDoItem) {
+		if (toDoItem.getName() == null) {
+			return false;
+		}
+		long key = ((long) toDoItem.getSortKey() << 32) | (sequence.getAndIncrement() & 0xFFFFFFFFL);
+		// the item is added to both maps while holding its name's entry so that a
+		// remove of the same name can not run in between
+		names.compute(toDoItem.getName(), (name, sameName) -> {
+			if (sameName == null) {
+				sameName = new ConcurrentSkipListMap<>();
+			}
+			sameName.put(key, toDoItem);
+			items.put(key, toDoItem);
+			return sameName;
+		});
+		size.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Retrieves a specified ToDoItem. If more than one item has the name, the one
+	 * closest to the head is returned.
+	 *
+	 * @param the name of the item to be found
+	 * @return the ToDoItem once found and null otherwise
+	 */
+	public ToDoItem get(String name) {
+		ConcurrentSkipListMap<Long, ToDoItem> sameName = names.get(name);
+		if (sameName == null) {
+			return null;
+		}
+		Map.Entry<Long, ToDoItem> first = sameName.firstEntry();
+		return (first == null) ? null : first.getValue();
+	}
+
+	/**
+	 * Checks if a requested to do item is in the list
+	 *
+	 * @param the name of the ToDoItem
+	 * @return true if found and false otherwise
+	 */
+	public boolean contains(String name) {
+		return get(name) != null;
+	}
+
+	/**
+	 * Removes a specified ToDoList item. If more than one item has the name, the
+	 * one closest to the head is removed.
+	 *
+	 * @param the name of the ToDoItem to be removed
+	 * @return true if the item is found and removed and false otherwise
+	 */
+	public boolean remove(String name) {
+		boolean[] removed = new boolean[1];
+		names.computeIfPresent(name, (key, sameName) -> {
+			Map.Entry<Long, ToDoItem> first = sameName.pollFirstEntry();
+			if (first != null) {
+				items.remove(first.getKey());
+				removed[0] = true;
+			}
+			return sameName.isEmpty() ? null : sameName;
+		});
+		if (removed[0]) {
+			size.decrementAndGet();
+		}
+		return removed[0];
+	}
+
+	/**
+	 * Retrieves an iterator over the items from head to tail. The iterator is
+	 * weakly consistent and does not support remove.
+	 *
+	 * @return an iterator over the list's items in sorted order
+	 */
+	@Override
+	public Iterator<ToDoItem> iterator() {
+		Iterator<ToDoItem> values = items.values().iterator();
+		return new Iterator<ToDoItem>() {
+			@Override
+			public boolean hasNext() {
+				return values.hasNext();
+			}
+
+			@Override
+			public ToDoItem next() {
+				return values.next();
+			}
+		};
+	}
+
+	/**
+	 * Clears the to-do list. Items inserted while clearing may be kept.
+	 */
+	public void clear() {
+		for (String name : names.keySet()) {
+			while (remove(name)) {
+				// removes every item with the name
+			}
+		}
+	}
+}
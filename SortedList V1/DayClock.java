@@ -0,0 +1,192 @@
+import java.util.TimeZone;
+
+/**
+ * Class that gives today's date as a day number, counted from 1/1/1970, and
+ * converts due dates to and from day numbers. The current day is cached until
+ * the next local midnight so that creating items does not format the date each
+ * time.
+ *
+ * @author Jacob
+ */
+public class DayClock {
+
+	private static final long DAY_MILLIS = 86400000L; // milliseconds in a day
+	private static final DayClock SYSTEM = new DayClock(); // the clock shared by all items
+
+	private volatile Window window; // the cached day and when it starts and ends
+
+	/**
+	 * Retrieves the clock that reads the system time, shared by every item
+	 *
+	 * @return the shared system clock
+	 */
+	public static DayClock system() {
+		return SYSTEM;
+	}
+
+	/**
+	 * Retrieves today's day number, only working it out again once the cached day
+	 * has passed
+	 *
+	 * @return the number of days from 1/1/1970 to today
+	 */
+	public int today() {
+		long now = millis();
+		Window current = window;
+		if (current == null || now < current.start || now >= current.end) {
+			int offset = TimeZone.getDefault().getOffset(now);
+			long day = Math.floorDiv(now + offset, DAY_MILLIS);
+			long start = day * DAY_MILLIS - offset;
+			current = new Window((int) day, start, start + DAY_MILLIS);
+			window = current;
+		}
+		return current.day;
+	}
+
+	/**
+	 * Retrieves the current time, which subclasses can replace to control the day
+	 *
+	 * @return the current time in milliseconds
+	 */
+	protected long millis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Function that reads a date in the form "M/d/yy" straight into a day number
+	 * without splitting the string. Two digit years are taken to be in the 2000s.
+	 * Dates before 1970 give negative day numbers.
+	 *
+	 * @param date: the date to be converted
+	 * @return the number of days from 1/1/1970 to the date
+	 * @throws NumberFormatException if the date is not in that form or the month
+	 *                               or day does not exist
+	 */
+	public static int parseDay(String date) {
+		int month = 0;
+		int day = 0;
+		int year = 0;
+		int part = 0; // 0 for the month, 1 for the day and 2 for the year
+		int digits = 0;
+		for (int i = 0; i < date.length(); i++) {
+			char c = date.charAt(i);
+			if (c >= '0' && c <= '9') {
+				int digit = c - '0';
+				if (part == 0) {
+					month = month * 10 + digit;
+				} else if (part == 1) {
+					day = day * 10 + digit;
+				} else {
+					year = year * 10 + digit;
+				}
+				digits++;
+			} else if (c == '/' && digits > 0 && part < 2) {
+				part++;
+				digits = 0;
+			} else {
+				throw new NumberFormatException("For input string: \"" + date + "\"");
+			}
+		}
+		if (part != 2 || digits == 0) {
+			throw new NumberFormatException("For input string: \"" + date + "\"");
+		}
+		year = (year < 100) ? 2000 + year : year;
+		if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+			throw new NumberFormatException("No such date: \"" + date + "\"");
+		}
+		return epochDay(year, month, day);
+	}
+
+	/**
+	 * Function that gives the number of days in a month
+	 *
+	 * @param year:  the full year
+	 * @param month: the month, 1 to 12
+	 * @return the number of days in the month
+	 */
+	public static int daysInMonth(int year, int month) {
+		if (month == 2) {
+			boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+			return leap ? 29 : 28;
+		}
+		return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+	}
+
+	/**
+	 * Function that converts a calendar date to a day number
+	 *
+	 * @param year:  the full year
+	 * @param month: the month, 1 to 12
+	 * @param day:   the day of the month
+	 * @return the number of days from 1/1/1970 to the date
+	 */
+	public static int epochDay(int year, int month, int day) {
+		// counts years from March so the leap day falls at the end of the year
+		int y = (month <= 2) ? year - 1 : year;
+		int era = Math.floorDiv(y, 400);
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Function that converts a day number to the yyMMdd form used by sort numbers
+	 *
+	 * @param epochDay: the number of days from 1/1/1970
+	 * @return the date as yyMMdd
+	 */
+	public static int yyMMdd(int epochDay) {
+		long date = yyyyMMdd(epochDay);
+		return (int) (Math.floorMod(Math.floorDiv(date, 10000), 100) * 10000 + Math.floorMod(date, 10000));
+	}
+
+	/**
+	 * Function that converts a day number to a date with the full year
+	 *
+	 * @param epochDay: the number of days from 1/1/1970
+	 * @return the date as yyyyMMdd
+	 */
+	private static long yyyyMMdd(int epochDay) {
+		int z = epochDay + 719468;
+		int era = Math.floorDiv(z, 146097);
+		int dayOfEra = z - era * 146097;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		long year = yearOfEra + era * 400L + (month <= 2 ? 1 : 0);
+		return year * 10000 + month * 100 + day;
+	}
+
+	/**
+	 * Function that converts a day number to a due date in the form "M/d/yy".
+	 * Two digit years are read back as 2000s, so other years are written in full.
+	 *
+	 * @param epochDay: the number of days from 1/1/1970
+	 * @return the date as "M/d/yy", or "M/d/yyyy" outside 2000 to 2099
+	 */
+	public static String formatDay(int epochDay) {
+		long date = yyyyMMdd(epochDay);
+		long year = Math.floorDiv(date, 10000);
+		int monthDay = (int) Math.floorMod(date, 10000);
+		return (monthDay / 100) + "/" + (monthDay % 100) + "/"
+				+ ((year >= 2000 && year < 2100) ? String.valueOf(year + 100).substring(2) : String.valueOf(year));
+	}
+
+	/**
+	 * A cached day and the times it starts and ends
+	 */
+	private static class Window {
+		private final int day;
+		private final long start;
+		private final long end;
+
+		private Window(int day, long start, long end) {
+			this.day = day;
+			this.start = start;
+			this.end = end;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class that writes ToDoItems and their values into a growing byte buffer, and
+ * reads them back from any ByteBuffer, including memory-mapped files. Strings are
+ * stored as their length followed by their UTF-8 bytes, with a length of -1 for
+ * null. An item is stored as its sort key, priority and flags followed by its
+ * name, due date and notes, so reading it back does not parse the due date.
+ *
+ * @author Jacob
+ */
+public class ItemCodec {
+
+	private static final byte DONE = 1; // flag bit set when the item is done
+	// bit 2 once held whether the item was late, which is now worked out from the date, so it is ignored
+	static final int MIN_ITEM_BYTES = 21; // sort key, priority, flags and three null strings
+
+	private ByteBuffer buffer; // the bytes written so far
+
+	/**
+	 * Constructor that creates a codec with an empty buffer
+	 *
+	 * @param capacity: the starting size of the buffer in bytes
+	 */
+	public ItemCodec(int capacity) {
+		buffer = ByteBuffer.allocate(capacity);
+	}
+
+	/**
+	 * Retrieves the buffer the codec writes into. Bytes from 0 up to its position
+	 * have been written.
+	 *
+	 * @return the codec's buffer
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * Writes an item's sort key, priority, flags and strings
+	 *
+	 * @param toDoItem: the item to write
+	 */
+	public void putItem(ToDoItem toDoItem) {
+		putInt(toDoItem.getSortKey());
+		putInt(toDoItem.getPriority());
+		putByte(toDoItem.getIsDone() ? DONE : 0);
+		putString(toDoItem.getName());
+		putString(toDoItem.getDueDate());
+		putString(toDoItem.getNotes());
+	}
+
+	/**
+	 * Writes a string as its length and UTF-8 bytes
+	 *
+	 * @param string: the string to write, which may be null
+	 */
+	public void putString(String string) {
+		if (string == null) {
+			putInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		ensure(4 + bytes.length);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Writes an int
+	 *
+	 * @param value: the int to write
+	 */
+	public void putInt(int value) {
+		ensure(4);
+		buffer.putInt(value);
+	}
+
+	/**
+	 * Writes a byte
+	 *
+	 * @param value: the byte to write
+	 */
+	public void putByte(byte value) {
+		ensure(1);
+		buffer.put(value);
+	}
+
+	/**
+	 * Writes everything in the buffer to a channel and empties the buffer
+	 *
+	 * @param channel: the channel to write to
+	 * @throws IOException if the write fails
+	 */
+	public void drainTo(WritableByteChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Makes sure the buffer has room for more bytes, doubling it if not
+	 *
+	 * @param bytes: the number of bytes about to be written
+	 */
+	private void ensure(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+
+	/**
+	 * Reads an item written by putItem from the buffer's position
+	 *
+	 * @param buffer: the buffer to read from
+	 * @return a new ToDoItem with the stored values
+	 * @throws IOException if the buffer ends before the item does
+	 */
+	public static ToDoItem readItem(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < MIN_ITEM_BYTES) {
+			throw new IOException("To-do item is cut short");
+		}
+		int sortKey = buffer.getInt();
+		int priority = buffer.getInt();
+		byte flags = buffer.get();
+		String name = readString(buffer);
+		String dueDate = readString(buffer);
+		String notes = readString(buffer);
+		ToDoItem toDoItem = new ToDoItem(name, dueDate, priority, notes, sortKey);
+		toDoItem.setIsDone((flags & DONE) != 0);
+		return toDoItem;
+	}
+
+	/**
+	 * Reads a string written by putString from the buffer's position
+	 *
+	 * @param buffer: the buffer to read from
+	 * @return the string, or null
+	 * @throws IOException if the buffer ends before the string does or the length
+	 *                     is not valid
+	 */
+	public static String readString(ByteBuffer buffer) throws IOException {
+		int length;
+		try {
+			length = buffer.getInt();
+		} catch (BufferUnderflowException e) {
+			throw new IOException("String is cut short", e);
+		}
+		if (length == -1) {
+			return null;
+		}
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Bad string length: " + length);
+		}
+		if (!buffer.hasArray()) { // a direct or mapped buffer has to be copied out
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return string;
+	}
+}
@@ -0,0 +1,104 @@
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Class that splits a run of a SortedList's items into parts for parallel
+ * streams. A run is split near its middle item by count, found through the skip
+ * index in O(log n) expected steps, so the items are never walked or copied to
+ * split them and lists with many items on a few days still split evenly. The
+ * sizes of the parts are estimates once a run has been split.
+ *
+ * @author Jacob
+ */
+public class ItemSpliterator implements Spliterator<ToDoItem> {
+
+	private static final int MIN_SPLIT = 256; // runs estimated smaller than this are not split
+	private static final Comparator<ToDoItem> ORDER = Comparator.comparingInt(ToDoItem::getSortKey);
+
+	private final SortedList list; // the list being read
+	private ToDoItem next; // the next item to give out
+	private final ToDoItem fence; // the first item after the run, null for the end of the list
+	private final ToDoItem last; // the last item in the run
+	private long estimate; // the number of items left, exact until the first split
+	private int characteristics; // the characteristics reported
+
+	/**
+	 * Constructor that covers the items from first up to but not including fence
+	 *
+	 * @param list:     the list being read
+	 * @param first:    the first item in the run
+	 * @param fence:    the first item after the run, or null
+	 * @param last:     the last item in the run
+	 * @param estimate: the number of items in the run
+	 */
+	ItemSpliterator(SortedList list, ToDoItem first, ToDoItem fence, ToDoItem last, long estimate) {
+		this(list, first, fence, last, estimate, ORDERED | SORTED | NONNULL | SIZED | SUBSIZED);
+	}
+
+	private ItemSpliterator(SortedList list, ToDoItem first, ToDoItem fence, ToDoItem last, long estimate,
+			int characteristics) {
+		this.list = list;
+		this.next = first;
+		this.fence = fence;
+		this.last = last;
+		this.estimate = estimate;
+		this.characteristics = characteristics;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super ToDoItem> action) {
+		if (next == null || next == fence) {
+			return false;
+		}
+		ToDoItem item = next;
+		next = item.getNext();
+		estimate--;
+		action.accept(item);
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super ToDoItem> action) {
+		ToDoItem item = next;
+		next = fence;
+		estimate = 0;
+		while (item != null && item != fence) {
+			action.accept(item);
+			item = item.getNext();
+		}
+	}
+
+	@Override
+	public Spliterator<ToDoItem> trySplit() {
+		if (next == null || next == fence || estimate < MIN_SPLIT) {
+			return null;
+		}
+		// the middle item is after next and no later than last, so it is inside the run
+		ToDoItem middle = list.splitPoint(next, last);
+		if (middle == null) {
+			return null;
+		}
+		long half = estimate / 2;
+		characteristics &= ~(SIZED | SUBSIZED); // the halves are only estimates
+		ItemSpliterator prefix = new ItemSpliterator(list, next, middle, middle.getPrev(), half, characteristics);
+		next = middle;
+		estimate -= half;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return estimate;
+	}
+
+	@Override
+	public int characteristics() {
+		return characteristics;
+	}
+
+	@Override
+	public Comparator<? super ToDoItem> getComparator() {
+		return ORDER;
+	}
+}
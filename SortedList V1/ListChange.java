@@ -0,0 +1,101 @@
+/**
+ * Class that describes one change made to a SortedList, as sent to the
+ * subscribers of its ListChanges.
+ *
+ * Each change carries the item's neighbors so a subscriber can apply it to its
+ * own copy of the list without searching: an inserted or moved item goes right
+ * after before, or at the front when before is null. Applying the changes of a
+ * batch in order always finds before already in place. For a removed item,
+ * before and after are the items it was between.
+ *
+ * @author Jacob
+ */
+public class ListChange {
+
+	public static final int INSERTED = 1; // the item was added to the list
+	public static final int REMOVED = 2; // the item was taken out of the list
+	public static final int MOVED = 3; // the item's due date or priority changed, so it may have moved
+	public static final int CHANGED = 4; // a field that does not affect the order changed
+	public static final int CLEARED = 5; // every item was taken out of the list
+
+	private final int type; // what kind of change this is
+	private final long version; // the number of changes recorded up to and including this one
+	private final ToDoItem item; // the item changed, null when the list was cleared
+	private final ToDoItem before; // the item before it
+	private final ToDoItem after; // the item after it
+	private final String field; // the name of the field that changed, for CHANGED
+
+	/**
+	 * Constructor that records a change
+	 *
+	 * @param type:    what kind of change this is
+	 * @param version: the version of the list after the change
+	 * @param item:    the item changed
+	 * @param before:  the item before it
+	 * @param after:   the item after it
+	 * @param field:   the field that changed, or null
+	 */
+	ListChange(int type, long version, ToDoItem item, ToDoItem before, ToDoItem after, String field) {
+		this.type = type;
+		this.version = version;
+		this.item = item;
+		this.before = before;
+		this.after = after;
+		this.field = field;
+	}
+
+	/**
+	 * Retrieves what kind of change this is
+	 *
+	 * @return INSERTED, REMOVED, MOVED, CHANGED or CLEARED
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Retrieves the version of the list after this change. Versions go up by one
+	 * for each change, so a gap means changes were missed.
+	 *
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Retrieves the item that changed
+	 *
+	 * @return the item, or null for CLEARED
+	 */
+	public ToDoItem getItem() {
+		return item;
+	}
+
+	/**
+	 * Retrieves the item before the changed item
+	 *
+	 * @return the item before it, or null if it is at the front
+	 */
+	public ToDoItem getBefore() {
+		return before;
+	}
+
+	/**
+	 * Retrieves the item after the changed item
+	 *
+	 * @return the item after it, or null if it is at the end
+	 */
+	public ToDoItem getAfter() {
+		return after;
+	}
+
+	/**
+	 * Retrieves the field that changed
+	 *
+	 * @return "name", "notes" or "isDone" for CHANGED, and null otherwise
+	 */
+	public String getField() {
+		return field;
+	}
+}
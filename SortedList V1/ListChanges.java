@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that publishes the changes made to a SortedList in batches, so that
+ * views and sync clients can follow the list by applying only what changed
+ * instead of reading it all again.
+ *
+ * The list records each change here as it happens, which only adds it to a
+ * pending batch. The batch is handed to the subscribers when flush is called,
+ * or every flush interval if one was given, so many quick changes reach them as
+ * one batch. Batches are delivered through a SubmissionPublisher on the common
+ * fork-join pool. Each subscriber has its own bounded buffer, and flush waits
+ * while a subscriber's buffer is full.
+ *
+ * @author Jacob
+ */
+public class ListChanges implements Flow.Publisher<List<ListChange>>, AutoCloseable {
+
+	private final SubmissionPublisher<List<ListChange>> publisher; // sends the batches to the subscribers
+	private final ScheduledThreadPoolExecutor timer; // flushes every interval, null if flushed by hand
+	private final Object flushing; // held while a batch is sent, so batches go out in order
+	private ArrayList<ListChange> pending; // the changes recorded since the last flush
+	private long version; // the number of changes recorded
+
+	/**
+	 * Constructor for changes that are only sent when flush is called
+	 */
+	public ListChanges() {
+		this(0);
+	}
+
+	/**
+	 * Constructor for changes that are sent every flush interval
+	 *
+	 * @param flushMillis: the time between flushes in milliseconds, or 0 to only
+	 *                     flush by hand
+	 */
+	public ListChanges(long flushMillis) {
+		publisher = new SubmissionPublisher<>();
+		pending = new ArrayList<>();
+		flushing = new Object();
+		if (flushMillis > 0) {
+			timer = new ScheduledThreadPoolExecutor(1, task -> {
+				Thread thread = new Thread(task, "list-changes");
+				thread.setDaemon(true);
+				return thread;
+			});
+			timer.scheduleAtFixedRate(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+		} else {
+			timer = null;
+		}
+	}
+
+	/**
+	 * Adds a subscriber, which is sent every batch flushed from now on
+	 *
+	 * @param subscriber: the subscriber
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super List<ListChange>> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	/**
+	 * Retrieves the version of the last change recorded
+	 *
+	 * @return the number of changes recorded so far
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Records a change to be sent with the next batch
+	 *
+	 * @param type:   what kind of change it is, from ListChange
+	 * @param item:   the item changed
+	 * @param before: the item before it
+	 * @param after:  the item after it
+	 * @param field:  the field that changed, or null
+	 */
+	synchronized void record(int type, ToDoItem item, ToDoItem before, ToDoItem after, String field) {
+		pending.add(new ListChange(type, ++version, item, before, after, field));
+	}
+
+	/**
+	 * Sends the changes recorded since the last flush to the subscribers as one
+	 * batch. Nothing is sent if there were no changes.
+	 */
+	public void flush() {
+		synchronized (flushing) {
+			ArrayList<ListChange> batch;
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					return;
+				}
+				batch = pending;
+				pending = new ArrayList<>();
+			}
+			if (!publisher.isClosed()) {
+				publisher.submit(Collections.unmodifiableList(batch));
+			}
+		}
+	}
+
+	/**
+	 * Sends any changes not yet flushed, stops the flush timer and tells the
+	 * subscribers that no more batches are coming
+	 */
+	@Override
+	public void close() {
+		if (timer != null) {
+			timer.shutdown();
+		}
+		flush();
+		publisher.close();
+	}
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that writes SortedLists and ToDoItems in a compact binary form and reads
+ * them back. The layout of a list is:
+ *
+ * <pre>
+ * int    magic ("TDSL")
+ * int    format version
+ * int    item count
+ * string list name
+ * items  in list order
+ * </pre>
+ *
+ * where each item is written by ItemCodec as its sort key, priority, flags, name,
+ * due date and notes, and each string is its length in bytes followed by its
+ * UTF-8 bytes. Since the items are stored in order with their sort keys, reading
+ * a list links them straight into a new SortedList with loadSorted instead of
+ * inserting them one at a time or parsing any dates.
+ *
+ * @author Jacob
+ */
+public class ListFormat {
+
+	public static final int MAGIC = 0x5444534C; // "TDSL", marks the start of a list
+	public static final int VERSION = 1; // the newest format version this class reads and writes
+	private static final int CHUNK = 1 << 16; // how many bytes are buffered before writing
+
+	/**
+	 * Writes a list to a channel
+	 *
+	 * @param list:    the list to write
+	 * @param channel: the channel to write to, such as a file or socket
+	 * @throws IOException if the channel can not be written
+	 */
+	public static void write(SortedList list, WritableByteChannel channel) throws IOException {
+		ItemCodec codec = new ItemCodec(CHUNK + 1024);
+		codec.putInt(MAGIC);
+		codec.putInt(VERSION);
+		codec.putInt(list.getSize());
+		codec.putString(list.getListName());
+		for (ToDoItem toDoItem = list.getHead(); toDoItem != null; toDoItem = toDoItem.getNext()) {
+			codec.putItem(toDoItem);
+			if (codec.buffer().position() >= CHUNK) {
+				codec.drainTo(channel);
+			}
+		}
+		codec.drainTo(channel);
+	}
+
+	/**
+	 * Writes a list to a file, replacing what was there
+	 *
+	 * @param list: the list to write
+	 * @param file: the file to write to
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(SortedList list, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			write(list, channel);
+		}
+	}
+
+	/**
+	 * Reads a list from a buffer's position, leaving the position after the list.
+	 * The buffer may be on the heap, direct or a mapped file.
+	 *
+	 * @param buffer: the buffer holding a written list
+	 * @return a new SortedList holding the items
+	 * @throws IOException if the buffer does not hold a list this class can read
+	 */
+	public static SortedList read(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a to-do list");
+		}
+		int version = buffer.getInt();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported to-do list version: " + version);
+		}
+		int count = buffer.getInt();
+		SortedList list = new SortedList(ItemCodec.readString(buffer));
+		if (count < 0 || count > buffer.remaining() / ItemCodec.MIN_ITEM_BYTES) {
+			throw new IOException("Bad to-do item count: " + count);
+		}
+		ToDoItem[] toDoItems = new ToDoItem[count];
+		for (int i = 0; i < count; i++) {
+			toDoItems[i] = ItemCodec.readItem(buffer);
+		}
+		if (count > 0 && !list.loadSorted(toDoItems, count)) {
+			throw new IOException("To-do list items are out of order");
+		}
+		return list;
+	}
+
+	/**
+	 * Maps a file and reads the list in it
+	 *
+	 * @param file: the file holding a written list
+	 * @return a new SortedList holding the items
+	 * @throws IOException if the file can not be read or does not hold a list
+	 */
+	public static SortedList read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer);
+		}
+	}
+
+	/**
+	 * Writes a single item into a new buffer
+	 *
+	 * @param toDoItem: the item to write
+	 * @return a buffer holding the item, ready to be read
+	 */
+	public static ByteBuffer encode(ToDoItem toDoItem) {
+		ItemCodec codec = new ItemCodec(64);
+		codec.putItem(toDoItem);
+		return codec.buffer().flip();
+	}
+
+	/**
+	 * Reads a single item written by encode from a buffer's position
+	 *
+	 * @param buffer: the buffer holding the item
+	 * @return a new ToDoItem with the stored values
+	 * @throws IOException if the buffer does not hold a whole item
+	 */
+	public static ToDoItem decode(ByteBuffer buffer) throws IOException {
+		return ItemCodec.readItem(buffer);
+	}
+}
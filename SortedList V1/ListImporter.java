@@ -0,0 +1,411 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that imports ToDoItems from CSV and iCalendar (.ics) files into a
+ * SortedList, spreading the work over several threads.
+ *
+ * The import runs in three stages. The calling thread reads the file through a
+ * FileChannel in chunks, cutting each chunk at the end of its last whole record.
+ * Each chunk is handed to a pool of worker threads that decode it, parse its
+ * records, work out their sort keys and sort them. The pool's queue only holds
+ * two chunks per thread; once it is full the reading thread parses the next
+ * chunk itself, so the raw bytes waiting to be parsed stay bounded. The parsed
+ * items of every chunk are kept until the end, so memory still grows with the
+ * size of the file, as the list itself does. Finally the sorted chunks are
+ * merged by sort key, with ties kept in file order, and the result is merged
+ * into the list in a single pass.
+ *
+ * Nothing is added to the list until every chunk has been parsed, so a file
+ * with a bad record leaves the list as it was.
+ *
+ * CSV records are one per line, as name,dueDate,priority,notes with the due
+ * date in the form "M/d/yy", the priority 1, 2 or 3 and the notes optional.
+ * Fields may be quoted with double quotes to hold commas, with "" for a quote,
+ * but may not hold line breaks. A first line starting with "name" is taken as a
+ * header and skipped.
+ *
+ * iCalendar files are read for their VTODO components: SUMMARY is the name, DUE
+ * the due date, DESCRIPTION the notes and a STATUS of COMPLETED marks the item
+ * done. PRIORITY 1 to 4 is high, 5 or none is medium and 6 to 9 is low. Tasks
+ * with no DUE date are skipped, since they have no place in the list.
+ *
+ * @author Jacob
+ */
+public class ListImporter {
+
+	private static final Comparator<ToDoItem> ORDER = Comparator.comparingInt(ToDoItem::getSortKey);
+	private static final byte[] BEGIN_TODO = "\nBEGIN:VTODO".getBytes(StandardCharsets.US_ASCII);
+
+	private int threads; // the number of worker threads
+	private int chunkSize; // the number of bytes read for each chunk
+
+	/**
+	 * Constructor that uses a worker thread for each processor and 1 MB chunks
+	 */
+	public ListImporter() {
+		threads = Runtime.getRuntime().availableProcessors();
+		chunkSize = 1 << 20;
+	}
+
+	/**
+	 * Sets the number of worker threads that parse chunks
+	 *
+	 * @param threads: the number of threads, at least 1
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Sets the number of bytes read for each chunk. A record longer than this
+	 * makes its chunk grow to fit it.
+	 *
+	 * @param chunkSize: the chunk size in bytes, at least 64
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(64, chunkSize);
+	}
+
+	/**
+	 * Imports the records of a CSV file into a list
+	 *
+	 * @param file: the file to read
+	 * @param list: the list to add the items to
+	 * @return the number of items added
+	 * @throws IOException if the file can not be read or has a bad record
+	 */
+	public int importCsv(Path file, SortedList list) throws IOException {
+		return importFile(file, list, false);
+	}
+
+	/**
+	 * Imports the tasks of an iCalendar file into a list
+	 *
+	 * @param file: the file to read
+	 * @param list: the list to add the items to
+	 * @return the number of items added
+	 * @throws IOException if the file can not be read or has a bad task
+	 */
+	public int importIcs(Path file, SortedList list) throws IOException {
+		return importFile(file, list, true);
+	}
+
+	/**
+	 * Runs the three stages of an import
+	 *
+	 * @param file: the file to read
+	 * @param list: the list to add the items to
+	 * @param ics:  true for an iCalendar file and false for CSV
+	 * @return the number of items added
+	 * @throws IOException if the file can not be read or has a bad record
+	 */
+	private int importFile(Path file, SortedList list, boolean ics) throws IOException {
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+		List<Future<ToDoItem>> chunks = new ArrayList<>(); // the sorted chunks, in file order
+		try {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+				boolean end = false;
+				while (!end) {
+					end = channel.read(buffer) < 0;
+					if (!end && buffer.hasRemaining()) {
+						continue; // fills the buffer before cutting a chunk
+					}
+					int cut = end ? buffer.position() : lastBoundary(buffer, ics);
+					if (cut == 0 && end) {
+						break;
+					}
+					if (cut == 0) { // a single record fills the buffer
+						buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+						continue;
+					}
+					byte[] chunk = Arrays.copyOf(buffer.array(), cut);
+					boolean first = chunks.isEmpty();
+					chunks.add(workers.submit((Callable<ToDoItem>) () -> parseChunk(chunk, ics, first)));
+					buffer.flip().position(cut);
+					buffer.compact();
+				}
+			}
+
+			ToDoItem[] heads = new ToDoItem[chunks.size()];
+			int count = 0;
+			for (int i = 0; i < heads.length; i++) {
+				heads[i] = chunks.get(i).get();
+				for (ToDoItem node = heads[i]; node != null; node = node.getNext()) {
+					count++;
+				}
+			}
+			ToDoItem[] items = new ToDoItem[count];
+			MergeIterator merged = new MergeIterator(heads);
+			for (int i = 0; i < count; i++) {
+				items[i] = merged.next();
+			}
+			if (count > 0 && !list.loadSorted(items, count)) { // loadSorted only takes an empty list
+				list.insertAll(Arrays.asList(items));
+			}
+			return count;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Import of " + file + " was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Bad record in " + file, e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Finds where the last whole record in the buffer ends
+	 *
+	 * @param buffer: the bytes read so far, from 0 to its position
+	 * @param ics:    true for an iCalendar file and false for CSV
+	 * @return the number of bytes in whole records, 0 if there are none
+	 */
+	private static int lastBoundary(ByteBuffer buffer, boolean ics) {
+		byte[] bytes = buffer.array();
+		if (!ics) {
+			for (int i = buffer.position() - 1; i >= 0; i--) {
+				if (bytes[i] == '\n') {
+					return i + 1;
+				}
+			}
+			return 0;
+		}
+		// a task is only whole once the next one has started
+		for (int i = buffer.position() - BEGIN_TODO.length; i > 0; i--) {
+			if (bytes[i] == '\n' && Arrays.equals(bytes, i, i + BEGIN_TODO.length, BEGIN_TODO, 0,
+					BEGIN_TODO.length)) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Parses a chunk into items, sorts them and links them together
+	 *
+	 * @param chunk: the chunk's bytes, holding only whole records
+	 * @param ics:   true for an iCalendar file and false for CSV
+	 * @param first: true for the first chunk of the file, which may have a header
+	 * @return the first item of the sorted chunk, linked to the rest through
+	 *         getNext, or null if the chunk has no items
+	 * @throws IOException if the chunk has a bad record
+	 */
+	private static ToDoItem parseChunk(byte[] chunk, boolean ics, boolean first) throws IOException {
+		String text = new String(chunk, StandardCharsets.UTF_8);
+		List<ToDoItem> parsed = ics ? parseIcs(text) : parseCsv(text, first);
+		ToDoItem[] items = parsed.toArray(new ToDoItem[0]);
+		Arrays.sort(items, ORDER); // stable, so equal keys stay in file order
+		for (int i = 0; i < items.length; i++) {
+			items[i].setNext((i + 1 < items.length) ? items[i + 1] : null);
+		}
+		return (items.length == 0) ? null : items[0];
+	}
+
+	/**
+	 * Function that parses CSV records into items
+	 *
+	 * @param text:  whole lines of CSV
+	 * @param first: true if the text starts at the top of the file
+	 * @return the items, in file order
+	 * @throws IOException if a record is bad
+	 */
+	static List<ToDoItem> parseCsv(String text, boolean first) throws IOException {
+		List<ToDoItem> items = new ArrayList<>();
+		List<String> fields = new ArrayList<>(4);
+		StringBuilder field = new StringBuilder();
+		int start = 0;
+		while (start < text.length()) {
+			int end = text.indexOf('\n', start);
+			if (end < 0) {
+				end = text.length();
+			}
+			int lineEnd = (end > start && text.charAt(end - 1) == '\r') ? end - 1 : end;
+			fields.clear();
+			boolean quoted = false;
+			for (int i = start; i <= lineEnd; i++) {
+				char c = (i < lineEnd) ? text.charAt(i) : ',';
+				if (quoted) {
+					if (c == '"' && i + 1 < lineEnd && text.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else if (c == '"') {
+						quoted = false;
+					} else if (i == lineEnd) {
+						throw new IOException("Unclosed quote in record: " + text.substring(start, lineEnd));
+					} else {
+						field.append(c);
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else {
+					field.append(c);
+				}
+			}
+			boolean header = first && items.isEmpty() && fields.get(0).trim().equalsIgnoreCase("name");
+			boolean blank = lineEnd == start;
+			if (!header && !blank) {
+				if (fields.size() < 3) {
+					throw new IOException("Record has too few fields: " + text.substring(start, lineEnd));
+				}
+				try {
+					String dueDate = fields.get(1).trim();
+					int priority = Integer.parseInt(fields.get(2).trim());
+					if (priority < 1 || priority > 3) {
+						throw new IOException("Priority must be 1, 2 or 3 in record: " + text.substring(start, lineEnd));
+					}
+					String notes = (fields.size() > 3) ? fields.get(3) : null;
+					items.add(new ToDoItem(fields.get(0), dueDate, priority, notes,
+							DayClock.parseDay(dueDate) * 10 + priority));
+				} catch (NumberFormatException e) {
+					throw new IOException("Bad date or priority in record: " + text.substring(start, lineEnd), e);
+				}
+			}
+			first = first && blank;
+			start = end + 1;
+		}
+		return items;
+	}
+
+	/**
+	 * Function that parses the VTODO components of iCalendar text into items
+	 *
+	 * @param text: whole components of iCalendar text
+	 * @return the items, in file order
+	 * @throws IOException if a task's due date or priority is bad
+	 */
+	static List<ToDoItem> parseIcs(String text) throws IOException {
+		List<ToDoItem> items = new ArrayList<>();
+		// a line starting with a space or tab continues the line before it
+		String[] lines = text.replace("\r\n", "\n").replace("\n ", "").replace("\n\t", "").split("\n");
+		boolean inTodo = false;
+		String name = null;
+		String due = null;
+		String notes = null;
+		int priority = 0;
+		boolean done = false;
+		for (String line : lines) {
+			if (line.equals("BEGIN:VTODO")) {
+				inTodo = true;
+				name = null;
+				due = null;
+				notes = null;
+				priority = 0;
+				done = false;
+				continue;
+			}
+			if (!inTodo) {
+				continue;
+			}
+			if (line.equals("END:VTODO")) {
+				inTodo = false;
+				if (due != null) {
+					items.add(icsItem((name == null) ? "" : name, due, priority, notes, done));
+				}
+				continue;
+			}
+			int colon = line.indexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+			int semicolon = line.indexOf(';');
+			String property = line.substring(0, (semicolon >= 0 && semicolon < colon) ? semicolon : colon);
+			String value = line.substring(colon + 1);
+			if (property.equals("SUMMARY")) {
+				name = unescape(value);
+			} else if (property.equals("DESCRIPTION")) {
+				notes = unescape(value);
+			} else if (property.equals("DUE")) {
+				due = value;
+			} else if (property.equals("STATUS")) {
+				done = value.equals("COMPLETED");
+			} else if (property.equals("PRIORITY")) {
+				try {
+					priority = Integer.parseInt(value.trim());
+				} catch (NumberFormatException e) {
+					throw new IOException("Bad priority in task: " + name, e);
+				}
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * Function that makes an item from the properties of a VTODO
+	 *
+	 * @param name:     the SUMMARY
+	 * @param due:      the DUE value, starting with yyyyMMdd
+	 * @param priority: the PRIORITY, 0 if there was none
+	 * @param notes:    the DESCRIPTION, or null
+	 * @param done:     true if the task was completed
+	 * @return the item
+	 * @throws IOException if the due date is bad
+	 */
+	private static ToDoItem icsItem(String name, String due, int priority, String notes, boolean done)
+			throws IOException {
+		int year;
+		int month;
+		int day;
+		try {
+			year = Integer.parseInt(due.substring(0, 4));
+			month = Integer.parseInt(due.substring(4, 6));
+			day = Integer.parseInt(due.substring(6, 8));
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			throw new IOException("Bad due date in task: " + name, e);
+		}
+		if (month < 1 || month > 12 || day < 1 || day > DayClock.daysInMonth(year, month)) {
+			throw new IOException("No such due date in task: " + name);
+		}
+		int level = (priority >= 1 && priority <= 4) ? 1 : (priority >= 6) ? 3 : 2;
+		int epochDay = DayClock.epochDay(year, month, day);
+		ToDoItem toDoItem = new ToDoItem(name, DayClock.formatDay(epochDay), level, notes, epochDay * 10 + level);
+		toDoItem.setIsDone(done);
+		return toDoItem;
+	}
+
+	/**
+	 * Function that undoes the escapes in an iCalendar text value
+	 *
+	 * @param value: the escaped value
+	 * @return the text
+	 */
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder text = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char escaped = value.charAt(++i);
+				text.append((escaped == 'n' || escaped == 'N') ? '\n' : escaped);
+			} else {
+				text.append(c);
+			}
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * Interface that a SortedList reports its operations to. Every method does
+ * nothing by default, and a list given NONE skips timing its operations
+ * altogether, so metrics cost nothing when they are off.
+ *
+ * @author Jacob
+ */
+public interface ListMetrics {
+
+	/**
+	 * Metrics that record nothing, used when metrics are off
+	 */
+	ListMetrics NONE = new ListMetrics() {
+	};
+
+	/**
+	 * Records an insert
+	 *
+	 * @param visited:    the number of items the search moved past
+	 * @param nearFinger: true if the item landed next to the current pointer
+	 * @param nanos:      how long the insert took
+	 */
+	default void recordInsert(int visited, boolean nearFinger, long nanos) {
+	}
+
+	/**
+	 * Records a get or contains by name
+	 *
+	 * @param visited: the number of items looked at
+	 * @param nanos:   how long the lookup took
+	 */
+	default void recordGet(int visited, long nanos) {
+	}
+
+	/**
+	 * Records a remove by name
+	 *
+	 * @param visited: the number of items the index search moved past
+	 * @param nanos:   how long the remove took
+	 */
+	default void recordRemove(int visited, long nanos) {
+	}
+
+	/**
+	 * Records a bulk insert by insertAll or loadSorted
+	 *
+	 * @param count:   the number of items added
+	 * @param visited: the number of items the merge placed, old and new
+	 * @param nanos:   how long the insert took
+	 */
+	default void recordInsertAll(int count, int visited, long nanos) {
+	}
+
+	/**
+	 * Records a bulk remove by removeIf or purgeCompleted
+	 *
+	 * @param count:   the number of items removed
+	 * @param visited: the number of items tested
+	 * @param nanos:   how long the remove took
+	 */
+	default void recordRemoveAll(int count, int visited, long nanos) {
+	}
+
+	/**
+	 * Records the size of the list after it changed
+	 *
+	 * @param size: the number of items in the list
+	 */
+	default void recordSize(int size) {
+	}
+}
@@ -0,0 +1,53 @@
+import java.util.List;
+
+/**
+ * Class for a page of items served by SortedList.getPageAfter. Along with the
+ * items it keeps the stamp the last of them had when the page was served, so
+ * the next page starts right after where this one ended even if that item has
+ * since been rescheduled or removed.
+ *
+ * @author Jacob
+ */
+public class ListPage {
+
+	private final List<ToDoItem> items; // the items on the page, in list order
+	private final long end; // the stamp of the last item when the page was served
+
+	/**
+	 * Constructor that records a page
+	 *
+	 * @param items: the items on the page
+	 * @param end:   the stamp the next page starts after
+	 */
+	ListPage(List<ToDoItem> items, long end) {
+		this.items = items;
+		this.end = end;
+	}
+
+	/**
+	 * Retrieves the items on the page
+	 *
+	 * @return the items in list order, empty at the end of the list
+	 */
+	public List<ToDoItem> getItems() {
+		return items;
+	}
+
+	/**
+	 * Checks if the page has no items, which means the list was used up
+	 *
+	 * @return true if the page is empty
+	 */
+	public boolean isEmpty() {
+		return items.isEmpty();
+	}
+
+	/**
+	 * Retrieves the stamp the next page starts after
+	 *
+	 * @return the stamp of the page's last item when it was served
+	 */
+	long getEnd() {
+		return end;
+	}
+}
@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Class that owns many named SortedLists, one per category, and gives a single
+ * agenda across them.
+ *
+ * The lists are spread over a number of shards, each with its own lock, so
+ * changes to lists in different shards run in parallel while changes to lists in
+ * the same shard take turns. The agenda merges the lists lazily by sort key, so
+ * reading the first k items of L lists costs O(k log L) instead of copying every
+ * item into a new list.
+ *
+ * The agenda reads the lists without locking them, so it should not be used
+ * while other threads are changing the lists it covers. Readers that need to run
+ * alongside changes can take a snapshot of a list instead.
+ *
+ * @author Jacob
+ */
+public class ListRegistry {
+
+	private final ConcurrentHashMap<String, SortedList> lists; // the lists by name
+	private final ReentrantLock[] shards; // the lock guarding each shard of lists
+
+	/**
+	 * Constructor that creates a registry with two shards for each processor
+	 */
+	public ListRegistry() {
+		this(Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Constructor that creates a registry with a set number of shards
+	 *
+	 * @param shardCount: the number of shards the lists are spread over
+	 */
+	public ListRegistry(int shardCount) {
+		lists = new ConcurrentHashMap<>();
+		shards = new ReentrantLock[Math.max(1, shardCount)];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Retrieves a list by name, creating it if it does not exist
+	 *
+	 * @param listName: the name of the list
+	 * @return the list with the name
+	 */
+	public SortedList addList(String listName) {
+		return lists.computeIfAbsent(listName, SortedList::new);
+	}
+
+	/**
+	 * Retrieves a list by name
+	 *
+	 * @param listName: the name of the list
+	 * @return the list, or null if there is no list with the name
+	 */
+	public SortedList getList(String listName) {
+		return lists.get(listName);
+	}
+
+	/**
+	 * Removes a list from the registry
+	 *
+	 * @param listName: the name of the list
+	 * @return true if the list was found and removed
+	 */
+	public boolean removeList(String listName) {
+		ReentrantLock shard = shardOf(listName);
+		shard.lock();
+		try {
+			return lists.remove(listName) != null;
+		} finally {
+			shard.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves the names of the lists in the registry
+	 *
+	 * @return the list names
+	 */
+	public Set<String> getListNames() {
+		return lists.keySet();
+	}
+
+	/**
+	 * Inserts an item into a list, creating the list if needed
+	 *
+	 * @param listName: the name of the list
+	 * @param toDoItem: the item to insert
+	 * @return true if correctly inserted
+	 */
+	public boolean insert(String listName, ToDoItem toDoItem) {
+		return update(listName, list -> list.insert(toDoItem));
+	}
+
+	/**
+	 * Removes an item from a list by name
+	 *
+	 * @param listName: the name of the list
+	 * @param itemName: the name of the item to remove
+	 * @return true if the item was found and removed
+	 */
+	public boolean remove(String listName, String itemName) {
+		return update(listName, list -> list.remove(itemName));
+	}
+
+	/**
+	 * Runs a change on a list while holding its shard's lock, creating the list if
+	 * needed
+	 *
+	 * @param listName: the name of the list
+	 * @param change:   the change to make
+	 * @return the value returned by the change
+	 */
+	public <T> T update(String listName, Function<SortedList, T> change) {
+		ReentrantLock shard = shardOf(listName);
+		shard.lock();
+		try {
+			return change.apply(addList(listName));
+		} finally {
+			shard.unlock();
+		}
+	}
+
+	/**
+	 * Takes a snapshot of a list while holding its shard's lock. The snapshot can
+	 * then be read by any thread without locking while the list keeps changing.
+	 *
+	 * @param listName: the name of the list
+	 * @return the snapshot, or null if there is no list with the name
+	 */
+	public ListSnapshot snapshot(String listName) {
+		ReentrantLock shard = shardOf(listName);
+		shard.lock();
+		try {
+			SortedList list = lists.get(listName);
+			return (list == null) ? null : list.snapshot();
+		} finally {
+			shard.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves the items of every list merged in due date order
+	 *
+	 * @return an iterator over every item in the registry
+	 */
+	public Iterator<ToDoItem> agenda() {
+		return agenda(new ArrayList<>(lists.keySet()));
+	}
+
+	/**
+	 * Retrieves the items of the named lists merged in due date order. Names that
+	 * are not in the registry are skipped.
+	 *
+	 * @param listNames: the lists to merge
+	 * @return an iterator over the lists' items
+	 */
+	public Iterator<ToDoItem> agenda(Collection<String> listNames) {
+		ToDoItem[] heads = new ToDoItem[listNames.size()];
+		int count = 0;
+		for (String listName : listNames) {
+			SortedList list = lists.get(listName);
+			if (list != null) {
+				heads[count++] = list.getHead();
+			}
+		}
+		return new MergeIterator(heads);
+	}
+
+	/**
+	 * Retrieves the first items of the agenda across every list
+	 *
+	 * @param count: the most items to return
+	 * @return up to count items in due date order
+	 */
+	public List<ToDoItem> agendaPage(int count) {
+		List<ToDoItem> page = new ArrayList<>(count);
+		Iterator<ToDoItem> agenda = agenda();
+		while (page.size() < count && agenda.hasNext()) {
+			page.add(agenda.next());
+		}
+		return page;
+	}
+
+	/**
+	 * Finds the lock of the shard a list belongs to
+	 *
+	 * @param listName: the name of the list
+	 * @return the shard's lock
+	 */
+	private ReentrantLock shardOf(String listName) {
+		return shards[Math.floorMod(listName.hashCode(), shards.length)];
+	}
+}
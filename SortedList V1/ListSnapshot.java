@@ -0,0 +1,299 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Class that gives a read-only view of a SortedList as it was when the view was
+ * taken. Any number of threads can read a snapshot without locking while the
+ * list keeps changing, since nothing in it is ever changed.
+ *
+ * A list that has handed out a snapshot keeps its items in a persistent tree as
+ * well as in its linked chain. Each insert or remove copies only the O(log n)
+ * tree nodes on the path to the item and shares the rest with the older trees,
+ * so taking a snapshot is just keeping the current root. The tree is a treap
+ * ordered by the item's sort key, with the order the item was added as the tie
+ * breaker, so it has the same order as the list.
+ *
+ * A snapshot fixes which items were in the list and their order. The items
+ * themselves are the list's own ToDoItems, so their notes or isDone flag may
+ * still change, and their getNext and getPrev links follow the live list rather
+ * than the snapshot.
+ *
+ * @author Jacob
+ */
+public class ListSnapshot implements Iterable<ToDoItem> {
+
+	private final String listName; // the name of the list
+	private final Node root; // the root of the tree, null if the list was empty
+
+	/**
+	 * Constructor that wraps a tree taken from a list
+	 *
+	 * @param listName: the name of the list
+	 * @param root:     the root of the list's tree
+	 */
+	ListSnapshot(String listName, Node root) {
+		this.listName = listName;
+		this.root = root;
+	}
+
+	/**
+	 * Retrieves the name of the list
+	 *
+	 * @return string with the name of the list
+	 */
+	public String getListName() {
+		return listName;
+	}
+
+	/**
+	 * Retrieves the number of items in the snapshot
+	 *
+	 * @return the size of the list when the snapshot was taken
+	 */
+	public int getSize() {
+		return size(root);
+	}
+
+	/**
+	 * Retrieves the item that was due first
+	 *
+	 * @return the first item, or null if the list was empty
+	 */
+	public ToDoItem getFirst() {
+		Node node = root;
+		while (node != null && node.left != null) {
+			node = node.left;
+		}
+		return (node == null) ? null : node.item;
+	}
+
+	/**
+	 * Retrieves the item that was due last
+	 *
+	 * @return the last item, or null if the list was empty
+	 */
+	public ToDoItem getLast() {
+		Node node = root;
+		while (node != null && node.right != null) {
+			node = node.right;
+		}
+		return (node == null) ? null : node.item;
+	}
+
+	/**
+	 * Retrieves the item at a position in the snapshot in O(log n) steps
+	 *
+	 * @param index: the position of the item, 0 for the first
+	 * @return the item at the position
+	 * @throws IndexOutOfBoundsException if index is not in the snapshot
+	 */
+	public ToDoItem get(int index) {
+		if (index < 0 || index >= size(root)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size(root));
+		}
+		Node node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index == leftSize) {
+				return node.item;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Retrieves an iterator over the items in list order
+	 *
+	 * @return an iterator over the snapshot
+	 */
+	@Override
+	public Iterator<ToDoItem> iterator() {
+		return new Iterator<ToDoItem>() {
+			private final ArrayDeque<Node> path = new ArrayDeque<>(); // the nodes still to visit after their left side
+
+			{
+				pushLeft(root);
+			}
+
+			@Override
+			public boolean hasNext() {
+				return !path.isEmpty();
+			}
+
+			@Override
+			public ToDoItem next() {
+				if (path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				Node node = path.pop();
+				pushLeft(node.right);
+				return node.item;
+			}
+
+			private void pushLeft(Node node) {
+				for (; node != null; node = node.left) {
+					path.push(node);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Retrieves a spliterator over the items in list order
+	 *
+	 * @return a spliterator over the snapshot
+	 */
+	@Override
+	public Spliterator<ToDoItem> spliterator() {
+		return Spliterators.spliterator(iterator(), size(root),
+				Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+	}
+
+	/**
+	 * Retrieves a sequential stream of the items in list order
+	 *
+	 * @return a stream over the snapshot
+	 */
+	public Stream<ToDoItem> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Function that gives an item's key in the tree from its sort key and the
+	 * order it was added in
+	 *
+	 * @param sortKey:  the item's sort key
+	 * @param sequence: the number of items added before it, of which only the low
+	 *                  32 bits are used
+	 * @return the item's key
+	 */
+	static long key(int sortKey, int sequence) {
+		return ((long) sortKey << 32) | (sequence & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Function that builds a balanced tree from items already in order. The
+	 * built nodes get priorities above any that insert gives, so new items go in
+	 * below them.
+	 *
+	 * @param items: the items, whose keys were set in increasing order
+	 * @param from:  the first item to use
+	 * @param to:    the item after the last one to use
+	 * @param depth: the depth of the subtree's root
+	 * @return the root of the tree
+	 */
+	static Node build(ToDoItem[] items, int from, int to, int depth) {
+		if (from >= to) {
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		ToDoItem item = items[middle];
+		return new Node(item.getStamp(), item, Integer.MAX_VALUE - depth, build(items, from, middle, depth + 1),
+				build(items, middle + 1, to, depth + 1));
+	}
+
+	/**
+	 * Function that adds an item to a tree, copying only the nodes on its path
+	 *
+	 * @param node: the root of the tree
+	 * @param key:  the item's key, which is not already in the tree
+	 * @param item: the item to add
+	 * @return the root of the new tree
+	 */
+	static Node insert(Node node, long key, ToDoItem item) {
+		if (node == null) {
+			// mixes the key so priorities are spread out, kept below those of built nodes
+			return new Node(key, item, (int) ((key * 0x9E3779B97F4A7C15L) >>> 34), null, null);
+		}
+		if (key < node.key) {
+			Node left = insert(node.left, key, item);
+			if (left.priority > node.priority) { // rotates the new node up
+				return new Node(left.key, left.item, left.priority, left.left,
+						new Node(node.key, node.item, node.priority, left.right, node.right));
+			}
+			return new Node(node.key, node.item, node.priority, left, node.right);
+		}
+		Node right = insert(node.right, key, item);
+		if (right.priority > node.priority) {
+			return new Node(right.key, right.item, right.priority,
+					new Node(node.key, node.item, node.priority, node.left, right.left), right.right);
+		}
+		return new Node(node.key, node.item, node.priority, node.left, right);
+	}
+
+	/**
+	 * Function that removes an item from a tree, copying only the nodes on its
+	 * path
+	 *
+	 * @param node: the root of the tree
+	 * @param key:  the key of the item to remove
+	 * @return the root of the new tree
+	 */
+	static Node remove(Node node, long key) {
+		if (node == null) {
+			return null;
+		}
+		if (key < node.key) {
+			return new Node(node.key, node.item, node.priority, remove(node.left, key), node.right);
+		}
+		if (key > node.key) {
+			return new Node(node.key, node.item, node.priority, node.left, remove(node.right, key));
+		}
+		return join(node.left, node.right);
+	}
+
+	/**
+	 * Function that joins two trees where every key in the first is smaller than
+	 * every key in the second
+	 *
+	 * @param left:  the tree with the smaller keys
+	 * @param right: the tree with the larger keys
+	 * @return the root of the joined tree
+	 */
+	private static Node join(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			return new Node(left.key, left.item, left.priority, left.left, join(left.right, right));
+		}
+		return new Node(right.key, right.item, right.priority, join(left, right.left), right.right);
+	}
+
+	private static int size(Node node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * A node of the tree. Nodes are never changed once made.
+	 */
+	static final class Node {
+		private final long key; // the item's sort key and tie breaker
+		private final ToDoItem item; // the item
+		private final int priority; // the heap order of the treap
+		private final Node left; // the items before this one
+		private final Node right; // the items after this one
+		private final int size; // the number of items in this subtree
+
+		private Node(long key, ToDoItem item, int priority, Node left, Node right) {
+			this.key = key;
+			this.item = item;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+			size = size(left) + size(right) + 1;
+		}
+	}
+}
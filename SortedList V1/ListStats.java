@@ -0,0 +1,198 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that keeps counts, items visited and latency histograms for the
+ * operations of one or more SortedLists. The counters can be updated from several
+ * threads. Latencies are kept in buckets by powers of two nanoseconds.
+ *
+ * @author Jacob
+ */
+public class ListStats implements ListMetrics {
+
+	public static final int INSERT = 0; // operation number for insert
+	public static final int GET = 1; // operation number for get and contains
+	public static final int REMOVE = 2; // operation number for remove
+	public static final int INSERT_ALL = 3; // operation number for insertAll and loadSorted
+	public static final int REMOVE_ALL = 4; // operation number for removeIf and purgeCompleted
+	private static final int OPERATIONS = 5; // the number of operation numbers
+	private static final int BUCKETS = 64; // one latency bucket for each bit of a long
+
+	private final LongAdder[] counts; // the number of each operation
+	private final LongAdder[] visited; // the items visited by each operation
+	private final LongAdder[] items; // the items added or removed by each bulk operation
+	private final LongAdder[][] latencies; // each operation's latency histogram
+	private final LongAdder nearFinger; // inserts that landed next to the current pointer
+	private final AtomicInteger size; // the last size reported
+	private final AtomicInteger maxSize; // the largest size reported
+
+	/**
+	 * Constructor that starts every counter at zero
+	 */
+	public ListStats() {
+		counts = newAdders(OPERATIONS);
+		visited = newAdders(OPERATIONS);
+		items = newAdders(OPERATIONS);
+		latencies = new LongAdder[OPERATIONS][];
+		for (int operation = 0; operation < OPERATIONS; operation++) {
+			latencies[operation] = newAdders(BUCKETS);
+		}
+		nearFinger = new LongAdder();
+		size = new AtomicInteger();
+		maxSize = new AtomicInteger();
+	}
+
+	@Override
+	public void recordInsert(int visited, boolean nearFinger, long nanos) {
+		record(INSERT, visited, nanos);
+		if (nearFinger) {
+			this.nearFinger.increment();
+		}
+	}
+
+	@Override
+	public void recordGet(int visited, long nanos) {
+		record(GET, visited, nanos);
+	}
+
+	@Override
+	public void recordRemove(int visited, long nanos) {
+		record(REMOVE, visited, nanos);
+	}
+
+	@Override
+	public void recordInsertAll(int count, int visited, long nanos) {
+		record(INSERT_ALL, visited, nanos);
+		items[INSERT_ALL].add(count);
+	}
+
+	@Override
+	public void recordRemoveAll(int count, int visited, long nanos) {
+		record(REMOVE_ALL, visited, nanos);
+		items[REMOVE_ALL].add(count);
+	}
+
+	@Override
+	public void recordSize(int size) {
+		this.size.set(size);
+		maxSize.accumulateAndGet(size, Math::max);
+	}
+
+	/**
+	 * Gets the number of times an operation ran
+	 *
+	 * @param operation: INSERT, GET, REMOVE, INSERT_ALL or REMOVE_ALL
+	 * @return the operation's count
+	 */
+	public long getCount(int operation) {
+		return counts[operation].sum();
+	}
+
+	/**
+	 * Gets the total items visited by an operation
+	 *
+	 * @param operation: INSERT, GET, REMOVE, INSERT_ALL or REMOVE_ALL
+	 * @return the items visited over every call
+	 */
+	public long getVisited(int operation) {
+		return visited[operation].sum();
+	}
+
+	/**
+	 * Gets the total items added by INSERT_ALL or removed by REMOVE_ALL. The other
+	 * operations change at most one item per call, so their count is kept by
+	 * getCount.
+	 *
+	 * @param operation: INSERT_ALL or REMOVE_ALL
+	 * @return the items added or removed over every call
+	 */
+	public long getItems(int operation) {
+		return items[operation].sum();
+	}
+
+	/**
+	 * Gets the average items visited by each call of an operation
+	 *
+	 * @param operation: INSERT, GET, REMOVE, INSERT_ALL or REMOVE_ALL
+	 * @return the average, or 0 if the operation never ran
+	 */
+	public double getAverageVisited(int operation) {
+		long count = getCount(operation);
+		return (count == 0) ? 0 : (double) getVisited(operation) / count;
+	}
+
+	/**
+	 * Gets the number of inserts that landed next to the current pointer
+	 *
+	 * @return the count of inserts near the pointer
+	 */
+	public long getNearFinger() {
+		return nearFinger.sum();
+	}
+
+	/**
+	 * Gets the number of calls of an operation in a latency bucket. Bucket b holds
+	 * calls that took from 2^(b-1) up to 2^b - 1 nanoseconds, and bucket 0 holds
+	 * calls that took no measurable time.
+	 *
+	 * @param operation: INSERT, GET, REMOVE, INSERT_ALL or REMOVE_ALL
+	 * @param bucket:    the bucket number, 0 to 63
+	 * @return the number of calls in the bucket
+	 */
+	public long getLatencyCount(int operation, int bucket) {
+		return latencies[operation][bucket].sum();
+	}
+
+	/**
+	 * Gets an upper bound on a latency percentile of an operation, from its
+	 * histogram
+	 *
+	 * @param operation:  INSERT, GET, REMOVE, INSERT_ALL or REMOVE_ALL
+	 * @param percentile: the percentile wanted, 0 to 100
+	 * @return the top of the bucket holding the percentile, in nanoseconds
+	 */
+	public long getLatencyPercentile(int operation, double percentile) {
+		long total = getCount(operation);
+		long wanted = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += getLatencyCount(operation, bucket);
+			if (seen >= wanted && seen > 0) {
+				return (bucket == 0) ? 0 : (1L << bucket) - 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the last size reported by a list
+	 *
+	 * @return the list size
+	 */
+	public int getSize() {
+		return size.get();
+	}
+
+	/**
+	 * Gets the largest size reported by a list
+	 *
+	 * @return the largest list size
+	 */
+	public int getMaxSize() {
+		return maxSize.get();
+	}
+
+	private void record(int operation, int visited, long nanos) {
+		counts[operation].increment();
+		this.visited[operation].add(visited);
+		latencies[operation][BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment();
+	}
+
+	private static LongAdder[] newAdders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+}
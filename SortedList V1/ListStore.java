@@ -0,0 +1,542 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Class that keeps a SortedList on disk as a snapshot plus a journal of the
+ * changes made since the snapshot was written.
+ *
+ * The snapshot is the list written in ListFormat, which holds every item in list
+ * order with its sort key already worked out. It is memory-mapped when the store
+ * is opened and linked straight into the list, so nothing is sorted again. The
+ * journal is an append-only file of inserts, removes, reschedules and field
+ * updates that is replayed on top of the snapshot. Bulk removals are recorded
+ * as the positions of the removed items, since a filter can not be written
+ * down. Each journal record carries
+ * its length and a CRC32 so a record cut short by a crash is found and dropped.
+ *
+ * Changes are buffered and written to the journal in groups: the journal is
+ * written and forced to disk once every groupSize changes, or when commit is
+ * called. Changes that were not committed are lost if the process stops.
+ * checkpoint writes a new snapshot and empties the journal, so opening the store
+ * again only has to replay the changes made after it.
+ *
+ * Each checkpoint starts a new generation. The snapshot and the journal both
+ * begin with the generation they belong to, and a journal from an older
+ * generation than the snapshot is thrown away instead of replayed. So a crash
+ * after the new snapshot is moved into place but before the journal is emptied
+ * does not apply the journal's changes a second time.
+ *
+ * @author Jacob
+ */
+public class ListStore implements Closeable {
+
+	private static final byte INSERT = 1; // journal record for insert
+	private static final byte REMOVE = 2; // journal record for remove
+	private static final byte RENAME = 3; // journal record for a name change
+	private static final byte NOTES = 4; // journal record for a notes change
+	private static final byte DONE = 5; // journal record for a change to isDone
+	private static final byte RESCHEDULE = 6; // journal record for a due date and priority change
+	private static final byte REMOVE_ALL = 7; // journal record for the items removed by removeIf
+	private static final int SNAPSHOT_MAGIC = 0x54445353; // "TDSS", starts a snapshot written by a store
+	private static final int JOURNAL_MAGIC = 0x5444534A; // "TDSJ", starts a journal
+	private static final int HEADER = 12; // the bytes of a magic number and generation
+
+	private final SortedList list; // the list being kept
+	private final Path snapshotFile; // where the snapshot is written
+	private final FileChannel journal; // the open journal file
+	private final ItemCodec pending; // journal records not yet written
+	private final CRC32 crc; // used to check each journal record
+	private int pendingChanges; // the number of changes in pending
+	private int groupSize; // the number of changes written to the journal at once
+	private long generation; // the number of checkpoints the snapshot and journal follow
+
+	/**
+	 * Constructor that takes a list that was already read from disk
+	 *
+	 * @param list:         the list being kept
+	 * @param snapshotFile: where the snapshot is written
+	 * @param journal:      the journal, positioned at its end
+	 * @param generation:   the generation of the snapshot
+	 */
+	private ListStore(SortedList list, Path snapshotFile, FileChannel journal, long generation) {
+		this.list = list;
+		this.snapshotFile = snapshotFile;
+		this.journal = journal;
+		this.generation = generation;
+		pending = new ItemCodec(8192);
+		crc = new CRC32();
+		groupSize = 64;
+	}
+
+	/**
+	 * Opens the store for a list, reading the snapshot and replaying the journal
+	 * if they exist. A record at the end of the journal that was only partly
+	 * written is dropped, and so is a journal left from before the last
+	 * checkpoint. Files written before stores kept generations are read as they
+	 * are and then checkpointed.
+	 *
+	 * @param directory: the folder the list's files are kept in
+	 * @param listName:  the name of the list, also used to name its files
+	 * @return the opened store
+	 * @throws IOException if the files can not be read
+	 */
+	public static ListStore open(Path directory, String listName) throws IOException {
+		Path snapshotFile = directory.resolve(listName + ".snapshot");
+		Path journalFile = directory.resolve(listName + ".journal");
+		SortedList list = new SortedList(listName);
+		long generation = 0;
+		if (Files.exists(snapshotFile)) {
+			try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.remaining() >= HEADER && buffer.getInt(0) == SNAPSHOT_MAGIC) {
+					buffer.getInt();
+					generation = buffer.getLong();
+				}
+				list = ListFormat.read(buffer);
+			}
+		}
+
+		FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		ListStore store = new ListStore(list, snapshotFile, journal, generation);
+		boolean headed = journal.size() >= HEADER && readInt(journal, 0) == JOURNAL_MAGIC;
+		if (headed && readLong(journal, 4) == generation) {
+			long end = replay(journal, HEADER, list);
+			journal.truncate(end);
+			journal.position(end);
+		} else if (headed || journal.size() == 0) { // empty, or older than the snapshot
+			store.startJournal();
+		} else { // written without a header, so it goes with the snapshot it was left beside
+			replay(journal, 0, list);
+			store.checkpoint();
+		}
+		return store;
+	}
+
+	/**
+	 * Retrieves the list kept by this store. Changes made to it directly are not
+	 * saved; they have to go through the store's methods.
+	 *
+	 * @return the list
+	 */
+	public SortedList getList() {
+		return list;
+	}
+
+	/**
+	 * Sets the number of changes written to the journal at once
+	 *
+	 * @param groupSize: the number of changes in each group, at least 1
+	 */
+	public void setGroupSize(int groupSize) {
+		this.groupSize = Math.max(1, groupSize);
+	}
+
+	/**
+	 * Inserts an item into the list and records it in the journal
+	 *
+	 * @param toDoItem: the item to insert
+	 * @return true if correctly inserted
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public boolean insert(ToDoItem toDoItem) throws IOException {
+		if (!list.insert(toDoItem)) {
+			return false;
+		}
+		int start = startRecord(INSERT);
+		pending.putItem(toDoItem);
+		endRecord(start);
+		return true;
+	}
+
+	/**
+	 * Removes an item from the list by name and records it in the journal
+	 *
+	 * @param name: the name of the item to remove
+	 * @return true if the item was found and removed
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public boolean remove(String name) throws IOException {
+		if (!list.remove(name)) {
+			return false;
+		}
+		int start = startRecord(REMOVE);
+		pending.putString(name);
+		endRecord(start);
+		return true;
+	}
+
+	/**
+	 * Renames an item in the list and records it in the journal
+	 *
+	 * @param name:    the name of the item to change
+	 * @param newName: the item's new name
+	 * @return true if the item was found
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public boolean setName(String name, String newName) throws IOException {
+		ToDoItem toDoItem = list.get(name);
+		if (toDoItem == null) {
+			return false;
+		}
+		toDoItem.setName(newName);
+		int start = startRecord(RENAME);
+		pending.putString(name);
+		pending.putString(newName);
+		endRecord(start);
+		return true;
+	}
+
+	/**
+	 * Changes an item's notes and records it in the journal
+	 *
+	 * @param name:  the name of the item to change
+	 * @param notes: the item's new notes
+	 * @return true if the item was found
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public boolean setNotes(String name, String notes) throws IOException {
+		ToDoItem toDoItem = list.get(name);
+		if (toDoItem == null) {
+			return false;
+		}
+		toDoItem.setNotes(notes);
+		int start = startRecord(NOTES);
+		pending.putString(name);
+		pending.putString(notes);
+		endRecord(start);
+		return true;
+	}
+
+	/**
+	 * Changes whether an item is done and records it in the journal
+	 *
+	 * @param name:   the name of the item to change
+	 * @param isDone: true if the item is done
+	 * @return true if the item was found
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public boolean setIsDone(String name, boolean isDone) throws IOException {
+		ToDoItem toDoItem = list.get(name);
+		if (toDoItem == null) {
+			return false;
+		}
+		toDoItem.setIsDone(isDone);
+		int start = startRecord(DONE);
+		pending.putString(name);
+		pending.putByte((byte) (isDone ? 1 : 0));
+		endRecord(start);
+		return true;
+	}
+
+	/**
+	 * Changes an item's due date and priority, moving it to its new place in the
+	 * list, and records it in the journal
+	 *
+	 * @param name:        the name of the item to change
+	 * @param newDueDate:  the new due date, as "M/d/yy"
+	 * @param newPriority: the new priority
+	 * @return true if the item was found
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public boolean reschedule(String name, String newDueDate, int newPriority) throws IOException {
+		ToDoItem toDoItem = list.get(name);
+		if (toDoItem == null) {
+			return false;
+		}
+		list.reschedule(toDoItem, newDueDate, newPriority);
+		int start = startRecord(RESCHEDULE);
+		pending.putString(name);
+		pending.putString(newDueDate);
+		pending.putInt(newPriority);
+		endRecord(start);
+		return true;
+	}
+
+	/**
+	 * Removes every item that matches a filter in one walk down the list and
+	 * records the positions the removed items had in the journal. If the filter
+	 * throws an exception, the items it matched before that are still removed and
+	 * recorded.
+	 *
+	 * @param filter: returns true for the items to remove
+	 * @return the first removed item, linked to the rest in list order, or null if
+	 *         nothing matched
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public ToDoItem removeIf(Predicate<ToDoItem> filter) throws IOException {
+		int[][] positions = { new int[16] }; // the positions of the matched items
+		int[] seen = new int[2]; // the position of the item being tested and the number matched
+		try {
+			return list.removeIf(toDoItem -> {
+				boolean matches = filter.test(toDoItem);
+				if (matches) {
+					if (seen[1] == positions[0].length) {
+						positions[0] = Arrays.copyOf(positions[0], seen[1] * 2);
+					}
+					positions[0][seen[1]++] = seen[0];
+				}
+				seen[0]++;
+				return matches;
+			});
+		} finally {
+			if (seen[1] > 0) {
+				int start = startRecord(REMOVE_ALL);
+				pending.putInt(seen[1]);
+				for (int i = 0; i < seen[1]; i++) {
+					pending.putInt(positions[0][i]);
+				}
+				endRecord(start);
+			}
+		}
+	}
+
+	/**
+	 * Removes every item that is marked as done and records it in the journal
+	 *
+	 * @return the first removed item, linked to the rest in list order, or null if
+	 *         no item was done
+	 * @throws IOException if a group of changes can not be written
+	 */
+	public ToDoItem purgeCompleted() throws IOException {
+		return removeIf(ToDoItem::getIsDone);
+	}
+
+	/**
+	 * Writes the buffered changes to the journal and forces them to disk
+	 *
+	 * @throws IOException if the journal can not be written
+	 */
+	public void commit() throws IOException {
+		if (pendingChanges == 0) {
+			return;
+		}
+		pending.drainTo(journal);
+		journal.force(false);
+		pendingChanges = 0;
+	}
+
+	/**
+	 * Writes a new snapshot of the whole list and empties the journal. The
+	 * snapshot is written to a temporary file first and moved into place, so a
+	 * crash before the move leaves the old snapshot and journal as they were. The
+	 * new snapshot is a generation ahead of the journal, so a crash after the move
+	 * leaves a journal that is thrown away when the store is opened again.
+	 *
+	 * @throws IOException if the snapshot can not be written
+	 */
+	public void checkpoint() throws IOException {
+		commit();
+		Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeHeader(channel, SNAPSHOT_MAGIC, generation + 1);
+			ListFormat.write(list, channel);
+			channel.force(true);
+		}
+		Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory(snapshotFile.toAbsolutePath().getParent());
+		generation++;
+		startJournal();
+	}
+
+	/**
+	 * Empties the journal and starts it with the current generation
+	 *
+	 * @throws IOException if the journal can not be written
+	 */
+	private void startJournal() throws IOException {
+		journal.truncate(0);
+		journal.position(0);
+		writeHeader(journal, JOURNAL_MAGIC, generation);
+		journal.force(true);
+	}
+
+	/**
+	 * Function that writes a magic number and generation to a channel
+	 *
+	 * @param channel:    the channel to write to
+	 * @param magic:      the magic number saying what the file holds
+	 * @param generation: the generation
+	 * @throws IOException if the channel can not be written
+	 */
+	private static void writeHeader(FileChannel channel, int magic, long generation) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(magic).putLong(generation);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+	}
+
+	/**
+	 * Function that forces a folder's entries to disk, so a file moved into it
+	 * stays moved after a crash. Some systems, such as Windows, can not open a
+	 * folder this way, and their moves are left to the file system.
+	 *
+	 * @param directory: the folder
+	 */
+	private static void syncDirectory(Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// the folder can not be opened on this system
+		}
+	}
+
+	private static int readInt(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		channel.read(buffer, position);
+		return buffer.getInt(0);
+	}
+
+	private static long readLong(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		channel.read(buffer, position);
+		return buffer.getLong(0);
+	}
+
+	/**
+	 * Commits any buffered changes and closes the journal
+	 *
+	 * @throws IOException if the changes can not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			journal.close();
+		}
+	}
+
+	/**
+	 * Starts a journal record, leaving room for its length and CRC
+	 *
+	 * @param operation: the kind of change being recorded
+	 * @return where the record starts in the pending buffer
+	 */
+	private int startRecord(byte operation) {
+		int start = pending.buffer().position();
+		pending.putInt(0);
+		pending.putInt(0);
+		pending.putByte(operation);
+		return start;
+	}
+
+	/**
+	 * Fills in a journal record's length and CRC, and writes the group of changes
+	 * if it is full
+	 *
+	 * @param start: where the record starts in the pending buffer
+	 * @throws IOException if the group can not be written
+	 */
+	private void endRecord(int start) throws IOException {
+		ByteBuffer buffer = pending.buffer();
+		int length = buffer.position() - start - 8;
+		crc.reset();
+		crc.update(buffer.array(), buffer.arrayOffset() + start + 8, length);
+		buffer.putInt(start, length);
+		buffer.putInt(start + 4, (int) crc.getValue());
+		pendingChanges++;
+		if (pendingChanges >= groupSize) {
+			commit();
+		}
+	}
+
+	/**
+	 * Applies the journal's records to a list, stopping at the first record that
+	 * is incomplete or fails its CRC check
+	 *
+	 * @param journal: the journal to read
+	 * @param from:    where the first record starts
+	 * @param list:    the list to apply the changes to
+	 * @return the position just after the last good record
+	 * @throws IOException if the journal can not be read
+	 */
+	private static long replay(FileChannel journal, long from, SortedList list) throws IOException {
+		if (journal.size() <= from) {
+			return from;
+		}
+		MappedByteBuffer buffer = journal.map(FileChannel.MapMode.READ_ONLY, 0, journal.size());
+		buffer.position((int) from);
+		CRC32 crc = new CRC32();
+		while (buffer.remaining() >= 9) {
+			int start = buffer.position();
+			int length = buffer.getInt();
+			int checksum = buffer.getInt();
+			if (length < 1 || length > buffer.remaining()) {
+				buffer.position(start);
+				break;
+			}
+			ByteBuffer record = buffer.slice();
+			record.limit(length);
+			crc.reset();
+			crc.update(record);
+			if ((int) crc.getValue() != checksum) {
+				buffer.position(start);
+				break;
+			}
+			apply(buffer, list);
+			buffer.position(start + 8 + length);
+		}
+		return buffer.position();
+	}
+
+	/**
+	 * Applies one journal record to a list
+	 *
+	 * @param buffer: the journal, positioned at the record's operation
+	 * @param list:   the list to change
+	 * @throws IOException if the record does not hold whole strings or items
+	 */
+	private static void apply(ByteBuffer buffer, SortedList list) throws IOException {
+		byte operation = buffer.get();
+		if (operation == INSERT) {
+			list.insert(ItemCodec.readItem(buffer));
+			return;
+		} else if (operation == REMOVE_ALL) {
+			int count = buffer.getInt();
+			int[] positions = new int[count];
+			for (int i = 0; i < count; i++) {
+				positions[i] = buffer.getInt();
+			}
+			int[] at = new int[2]; // the position of the item being tested and the next position wanted
+			list.removeIf(toDoItem -> {
+				boolean matches = at[1] < count && positions[at[1]] == at[0];
+				at[0]++;
+				if (matches) {
+					at[1]++;
+				}
+				return matches;
+			});
+			return;
+		}
+		ToDoItem toDoItem = list.get(ItemCodec.readString(buffer));
+		if (operation == REMOVE) {
+			if (toDoItem != null) {
+				list.remove(toDoItem.getName());
+			}
+		} else if (toDoItem == null) {
+			return;
+		} else if (operation == RENAME) {
+			toDoItem.setName(ItemCodec.readString(buffer));
+		} else if (operation == NOTES) {
+			toDoItem.setNotes(ItemCodec.readString(buffer));
+		} else if (operation == DONE) {
+			toDoItem.setIsDone(buffer.get() != 0);
+		} else if (operation == RESCHEDULE) {
+			String newDueDate = ItemCodec.readString(buffer);
+			list.reschedule(toDoItem, newDueDate, buffer.getInt());
+		}
+	}
+}
@@ -0,0 +1,68 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Class that steps through several sorted lists at once as if they were one list.
+ * A heap holds the next item of each list, so each step costs O(log L) for L
+ * lists and nothing is copied. Items with the same sort key come out in the order
+ * their lists were given, and in list order within a list.
+ *
+ * @author Jacob
+ */
+public class MergeIterator implements Iterator<ToDoItem> {
+
+	private final PriorityQueue<Cursor> heap; // the next item of each list not yet used up
+
+	/**
+	 * Constructor that starts from the head of each list
+	 *
+	 * @param heads: the first item of each list, null for an empty list
+	 */
+	public MergeIterator(ToDoItem[] heads) {
+		heap = new PriorityQueue<>(Math.max(1, heads.length));
+		for (int source = 0; source < heads.length; source++) {
+			if (heads[source] != null) {
+				heap.add(new Cursor(heads[source], source));
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !heap.isEmpty();
+	}
+
+	@Override
+	public ToDoItem next() {
+		Cursor cursor = heap.poll();
+		if (cursor == null) {
+			throw new NoSuchElementException();
+		}
+		ToDoItem item = cursor.item;
+		if (item.getNext() != null) { // the cursor moves on and goes back in the heap
+			cursor.item = item.getNext();
+			heap.add(cursor);
+		}
+		return item;
+	}
+
+	/**
+	 * The next item of one list and which list it came from
+	 */
+	private static class Cursor implements Comparable<Cursor> {
+		private ToDoItem item;
+		private final int source;
+
+		private Cursor(ToDoItem item, int source) {
+			this.item = item;
+			this.source = source;
+		}
+
+		@Override
+		public int compareTo(Cursor other) {
+			int order = Integer.compare(item.getSortKey(), other.item.getSortKey());
+			return (order != 0) ? order : Integer.compare(source, other.source);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Class that steps through the stored items of a SortedList with the
+ * occurrences of its recurring templates merged in, in sort key order. A heap
+ * holds the next occurrence day of each template, so the memory used depends on
+ * the number of templates, and each occurrence is only created when it is
+ * reached. On equal sort keys the stored items come first, then the templates in
+ * the order they were added.
+ *
+ * @author Jacob
+ */
+public class OccurrenceIterator implements Iterator<ToDoItem> {
+
+	private final Iterator<ToDoItem> stored; // the stored items wanted, in list order
+	private final PriorityQueue<Cursor> heap; // the next occurrence of each template not yet used up
+	private final int endDay; // the last due day wanted
+	private ToDoItem nextStored; // the next stored item, or null when they are used up
+
+	/**
+	 * Constructor that finds the first occurrence of each template in the range
+	 *
+	 * @param stored:      the stored items in the range, in list order
+	 * @param templates:   the recurring templates
+	 * @param startDay:    the first due day wanted
+	 * @param endDay:      the last due day wanted
+	 * @param minPriority: the smallest priority number wanted
+	 * @param maxPriority: the largest priority number wanted
+	 */
+	OccurrenceIterator(Iterator<ToDoItem> stored, List<RecurringItem> templates, int startDay, int endDay,
+			int minPriority, int maxPriority) {
+		this.stored = stored;
+		this.endDay = endDay;
+		nextStored = stored.hasNext() ? stored.next() : null;
+		heap = new PriorityQueue<>(Math.max(1, templates.size()));
+		for (int order = 0; order < templates.size(); order++) {
+			RecurringItem template = templates.get(order);
+			if (template.getPriority() < minPriority || template.getPriority() > maxPriority) {
+				continue;
+			}
+			int day = template.nextDay(startDay);
+			if (day != RecurringItem.NO_DAY && day <= endDay) {
+				heap.add(new Cursor(template, order, day));
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return nextStored != null || !heap.isEmpty();
+	}
+
+	@Override
+	public ToDoItem next() {
+		Cursor cursor = heap.peek();
+		if (nextStored != null && (cursor == null || nextStored.getSortKey() <= cursor.sortKey())) {
+			ToDoItem item = nextStored;
+			nextStored = stored.hasNext() ? stored.next() : null;
+			return item;
+		}
+		if (cursor == null) {
+			throw new NoSuchElementException();
+		}
+		heap.poll();
+		ToDoItem item = cursor.template.occurrence(cursor.day);
+		int day = (cursor.day == Integer.MAX_VALUE) ? RecurringItem.NO_DAY
+				: cursor.template.nextDay(cursor.day + 1);
+		if (day != RecurringItem.NO_DAY && day <= endDay) { // the cursor moves on and goes back in the heap
+			cursor.day = day;
+			heap.add(cursor);
+		}
+		return item;
+	}
+
+	/**
+	 * The next occurrence day of one template and the order the template was
+	 * added in
+	 */
+	private static class Cursor implements Comparable<Cursor> {
+		private final RecurringItem template;
+		private final int order;
+		private int day;
+
+		private Cursor(RecurringItem template, int order, int day) {
+			this.template = template;
+			this.order = order;
+			this.day = day;
+		}
+
+		private long sortKey() {
+			return day * 10L + template.getPriority();
+		}
+
+		@Override
+		public int compareTo(Cursor other) {
+			int compare = Long.compare(sortKey(), other.sortKey());
+			return (compare != 0) ? compare : Integer.compare(order, other.order);
+		}
+	}
+}
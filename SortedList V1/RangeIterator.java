@@ -0,0 +1,75 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class that steps through the items of a SortedList that are due in a range of
+ * days and have a priority in a range. Each item's sort key is its due day times
+ * ten plus its priority, so the matching items of one day form a single run and
+ * the iterator only has to jump past the items between runs.
+ *
+ * @author Jacob
+ */
+public class RangeIterator implements Iterator<ToDoItem> {
+
+	private final SortedList list; // the list being read
+	private final int endDay; // the last due day wanted
+	private final int minPriority; // the smallest priority number wanted
+	private final int maxPriority; // the largest priority number wanted
+	private ToDoItem next; // the next matching item, or null at the end
+
+	/**
+	 * Constructor that finds the first matching item
+	 *
+	 * @param list:        the list to read
+	 * @param startDay:    the first due day wanted
+	 * @param endDay:      the last due day wanted
+	 * @param minPriority: the smallest priority number wanted
+	 * @param maxPriority: the largest priority number wanted
+	 */
+	RangeIterator(SortedList list, int startDay, int endDay, int minPriority, int maxPriority) {
+		this.list = list;
+		this.endDay = endDay;
+		this.minPriority = minPriority;
+		this.maxPriority = maxPriority;
+		next = (startDay > endDay || minPriority > maxPriority) ? null
+				: seek(list.getFirstAtLeast(startDay * 10 + minPriority));
+	}
+
+	/**
+	 * Moves forward from an item to the first one that matches the range
+	 *
+	 * @param node: the item to start from
+	 * @return the first matching item at or after node, or null if there is none
+	 */
+	private ToDoItem seek(ToDoItem node) {
+		while (node != null) {
+			int day = Math.floorDiv(node.getSortKey(), 10);
+			int priority = Math.floorMod(node.getSortKey(), 10);
+			if (day > endDay) {
+				return null;
+			} else if (priority < minPriority) { // jumps to the wanted priorities of this day
+				node = list.getFirstAtLeast(day * 10 + minPriority);
+			} else if (priority > maxPriority) { // jumps to the next day
+				node = list.getFirstAtLeast((day + 1) * 10 + minPriority);
+			} else {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public ToDoItem next() {
+		if (next == null) {
+			throw new NoSuchElementException();
+		}
+		ToDoItem item = next;
+		next = seek(item.getNext());
+		return item;
+	}
+}
@@ -0,0 +1,173 @@
+import java.util.TreeMap;
+
+/**
+ * Class for a to do item that repeats every so many days, stored once instead of
+ * as a copy for every time it comes due.
+ *
+ * A SortedList holding the template works out its occurrences only as they are
+ * read, each as a new ToDoItem with the due date of that day. Nothing is kept
+ * for an occurrence unless it is skipped or marked done, and then only its day
+ * is kept as an exception, so the memory used grows with the templates and
+ * their exceptions rather than with the number of times they repeat.
+ *
+ * @author Jacob
+ */
+public class RecurringItem {
+
+	public static final int NO_END = Integer.MAX_VALUE; // the last day of a template that never ends
+	public static final int NO_DAY = Integer.MIN_VALUE; // given by nextDay when there are no more occurrences
+
+	private final String name; // name of the event
+	private final int priority; // high medium or low priority for sorting
+	private final String notes; // any notes related to the event
+	private final int firstDay; // the due day of the first occurrence
+	private final int everyDays; // the number of days between occurrences
+	private final int lastDay; // no occurrence is due after this day
+	private final TreeMap<Integer, Boolean> exceptions; // days skipped (false) or done (true)
+
+	/**
+	 * Constructor for a template that repeats with no end
+	 *
+	 * @param name:         the name of each occurrence
+	 * @param firstDueDate: the due date of the first occurrence, as "M/d/yy"
+	 * @param everyDays:    the number of days between occurrences, 1 for daily
+	 * @param priority:     high (1), medium (2), or low (3) priority
+	 * @param notes:        the description for each occurrence
+	 */
+	public RecurringItem(String name, String firstDueDate, int everyDays, int priority, String notes) {
+		this(name, firstDueDate, everyDays, null, priority, notes);
+	}
+
+	/**
+	 * Constructor for a template that stops repeating after a date
+	 *
+	 * @param name:         the name of each occurrence
+	 * @param firstDueDate: the due date of the first occurrence, as "M/d/yy"
+	 * @param everyDays:    the number of days between occurrences, 1 for daily
+	 * @param lastDueDate:  the last date an occurrence can be due, or null for no
+	 *                      end
+	 * @param priority:     high (1), medium (2), or low (3) priority
+	 * @param notes:        the description for each occurrence
+	 */
+	public RecurringItem(String name, String firstDueDate, int everyDays, String lastDueDate, int priority,
+			String notes) {
+		if (everyDays < 1) {
+			throw new IllegalArgumentException("Days between occurrences must be at least 1: " + everyDays);
+		}
+		this.name = name;
+		this.priority = priority;
+		this.notes = notes;
+		this.everyDays = everyDays;
+		firstDay = DayClock.parseDay(firstDueDate);
+		lastDay = (lastDueDate == null) ? NO_END : DayClock.parseDay(lastDueDate);
+		exceptions = new TreeMap<>();
+	}
+
+	/**
+	 * Gets the name of the occurrences
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the priority of the occurrences
+	 *
+	 * @return the priority
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Gets the number of days between occurrences
+	 *
+	 * @return the number of days
+	 */
+	public int getEveryDays() {
+		return everyDays;
+	}
+
+	/**
+	 * Gets the number of occurrences that were skipped or marked done
+	 *
+	 * @return the number of days kept as exceptions
+	 */
+	public int getExceptionCount() {
+		return exceptions.size();
+	}
+
+	/**
+	 * Checks if an occurrence is due on a day, skipped or not
+	 *
+	 * @param day: the day number
+	 * @return true if the template repeats on that day
+	 */
+	public boolean isOccurrence(int day) {
+		return day >= firstDay && day <= lastDay && (day - firstDay) % everyDays == 0;
+	}
+
+	/**
+	 * Finds the first occurrence due on or after a day that was not skipped
+	 *
+	 * @param day: the earliest day wanted
+	 * @return the day of the occurrence, or NO_DAY if there are no more
+	 */
+	public int nextDay(int day) {
+		int next = (day <= firstDay) ? firstDay : day + Math.floorMod(firstDay - day, everyDays);
+		while (next <= lastDay && next >= firstDay && Boolean.FALSE.equals(exceptions.get(next))) {
+			next += everyDays;
+		}
+		return (next <= lastDay && next >= firstDay) ? next : NO_DAY; // next < firstDay if the day count overflowed
+	}
+
+	/**
+	 * Creates the occurrence due on a day. It is not stored anywhere, but marking
+	 * it done is kept by the template.
+	 *
+	 * @param day: a day the template repeats on
+	 * @return a new ToDoItem for the occurrence
+	 */
+	public ToDoItem occurrence(int day) {
+		ToDoItem toDoItem = new ToDoItem(name, DayClock.formatDay(day), priority, notes, day * 10 + priority);
+		toDoItem.setIsDone(Boolean.TRUE.equals(exceptions.get(day)));
+		toDoItem.setRecurrence(this);
+		return toDoItem;
+	}
+
+	/**
+	 * Skips the occurrence due on a day so it is no longer listed
+	 *
+	 * @param day: the day of the occurrence
+	 * @return true if the template repeats on that day
+	 */
+	public boolean skip(int day) {
+		if (!isOccurrence(day)) {
+			return false;
+		}
+		exceptions.put(day, false);
+		return true;
+	}
+
+	/**
+	 * Marks the occurrence due on a day as done or not done. An occurrence that is
+	 * not done and not skipped keeps no exception.
+	 *
+	 * @param day:    the day of the occurrence
+	 * @param isDone: true if the occurrence is done
+	 * @return true if the template repeats on that day
+	 */
+	public boolean setDone(int day, boolean isDone) {
+		if (!isOccurrence(day)) {
+			return false;
+		}
+		if (isDone) {
+			exceptions.put(day, true);
+		} else {
+			exceptions.remove(day);
+		}
+		return true;
+	}
+}
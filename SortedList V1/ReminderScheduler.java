@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Class that sends "due" and "late" reminders for the items of SortedLists as
+ * their dates come up, without checking every item on every tick.
+ *
+ * An item becomes late at the start of its due day, the same moment
+ * ToDoItem.getIsLate turns true, and its due reminder comes a set lead time
+ * before that, one day by default. Since each list is kept in due date order,
+ * only the next item of each list needs a timer for each kind of reminder. When
+ * a timer goes off, the items whose time has come are sent from the front of
+ * what is left, and the timer is armed again for the item after them, which is
+ * already at hand. A list tells its watch about every item placed in it, so an
+ * item placed ahead of the armed one moves the timer up in O(1).
+ *
+ * The timers are kept in a hierarchical timing wheel: six wheels of 64 slots,
+ * each slot of a wheel spanning a whole turn of the wheel below it. Arming or
+ * cancelling a timer takes O(1), and timers are moved down a wheel only as
+ * their time gets close.
+ *
+ * Time is read from a DayClock, so a clock that returns set times drives the
+ * reminders without waiting. Nothing runs on its own: advance is called every
+ * tick by the thread that changes the watched lists, or while holding their
+ * locks, and it sends the reminders whose time has passed. Each reminder is sent
+ * once. Items that are already due or late when they are placed or when their
+ * list starts being watched are not announced, and neither are items removed
+ * before their time.
+ *
+ * @author Jacob
+ */
+public class ReminderScheduler {
+
+	public static final int DUE = 0; // a reminder that an item is coming due
+	public static final int LATE = 1; // a reminder that an item has become late
+
+	private static final long DAY_MILLIS = 86400000L; // milliseconds in a day
+	private static final int SLOT_BITS = 6; // 64 slots in each wheel
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int LEVELS = 6; // the number of wheels
+
+	private final DayClock clock; // where the time is read from
+	private final long tickMillis; // the time covered by one slot of the lowest wheel
+	private final long[] leads; // how long before an item becomes late each kind of reminder is sent
+	private final Listener listener; // where reminders are sent
+	private final Timer[][] wheels; // the first timer in each slot of each wheel
+	private long currentTick; // the last tick the wheels were advanced to
+	private int armed; // the number of timers in the wheels
+
+	/**
+	 * Constructor for reminders read from the system clock every second, with
+	 * due reminders a day ahead
+	 *
+	 * @param listener: where reminders are sent
+	 */
+	public ReminderScheduler(Listener listener) {
+		this(DayClock.system(), 1000, DAY_MILLIS, listener);
+	}
+
+	/**
+	 * Constructor that sets the clock, tick and due reminder lead time
+	 *
+	 * @param clock:     the clock to read the time from
+	 * @param tickMillis: the time between ticks in milliseconds
+	 * @param dueLead:   how long before an item becomes late its due reminder
+	 *                   is sent, in milliseconds
+	 * @param listener:  where reminders are sent
+	 */
+	public ReminderScheduler(DayClock clock, long tickMillis, long dueLead, Listener listener) {
+		this.clock = clock;
+		this.tickMillis = Math.max(1, tickMillis);
+		this.listener = listener;
+		leads = new long[] { Math.max(0, dueLead), 0 };
+		wheels = new Timer[LEVELS][SLOTS];
+		currentTick = Math.floorDiv(clock.millis(), this.tickMillis);
+	}
+
+	/**
+	 * Starts sending reminders for a list's items. Items whose reminder time has
+	 * already passed are not announced.
+	 *
+	 * @param list: the list to watch
+	 */
+	public void watch(SortedList list) {
+		unwatch(list);
+		Watch watch = new Watch(list);
+		long now = clock.millis();
+		for (int kind = DUE; kind <= LATE; kind++) {
+			watch.sentThrough[kind] = dayOf(now + leads[kind]);
+		}
+		list.setReminders(watch);
+		watch.rearm();
+	}
+
+	/**
+	 * Stops sending reminders for a list
+	 *
+	 * @param list: the list to stop watching
+	 */
+	public void unwatch(SortedList list) {
+		Watch watch = list.getReminders();
+		if (watch != null && watch.scheduler() == this) {
+			for (Timer timer : watch.timers) {
+				cancel(timer);
+			}
+			list.setReminders(null);
+		}
+	}
+
+	/**
+	 * Moves the wheels up to the clock's current time and sends every reminder
+	 * whose time has passed
+	 *
+	 * @return the number of reminders sent
+	 */
+	public int advance() {
+		long nowTick = Math.floorDiv(clock.millis(), tickMillis);
+		int sent = 0;
+		while (currentTick < nowTick) {
+			if (armed == 0) { // nothing to move or send
+				currentTick = nowTick;
+				break;
+			}
+			currentTick++;
+			// higher wheels go first so their timers can still land in this tick's slot
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+					cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+				}
+			}
+			int slot = (int) (currentTick & (SLOTS - 1));
+			Timer timer = wheels[0][slot];
+			wheels[0][slot] = null;
+			while (timer != null) {
+				Timer next = timer.next;
+				timer.level = -1;
+				timer.next = null;
+				timer.prev = null;
+				armed--;
+				sent += timer.watch.send(timer.kind);
+				timer = next;
+			}
+		}
+		return sent;
+	}
+
+	/**
+	 * Moves the timers in a slot of a higher wheel down to the wheels below
+	 *
+	 * @param level: the wheel
+	 * @param slot:  the slot whose turn has come
+	 */
+	private void cascade(int level, int slot) {
+		Timer timer = wheels[level][slot];
+		wheels[level][slot] = null;
+		while (timer != null) {
+			Timer next = timer.next;
+			timer.level = -1;
+			armed--;
+			add(timer, currentTick);
+			timer = next;
+		}
+	}
+
+	/**
+	 * Puts a timer in the slot for its tick, on the lowest wheel whose turn
+	 * reaches it. A timer whose time has passed goes in the first tick it can.
+	 *
+	 * @param timer:     the timer, not in any slot
+	 * @param firstTick: the earliest tick the timer can go in, the current tick
+	 *                   while it is being cascaded and the next one otherwise
+	 */
+	private void add(Timer timer, long firstTick) {
+		long tick = Math.max(Math.floorDiv(timer.deadline, tickMillis), firstTick);
+		long delta = tick - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+		if (delta >= 1L << (SLOT_BITS * LEVELS)) { // past the top wheel, so it waits in its last slot
+			tick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+		}
+		int slot = (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+		timer.level = level;
+		timer.slot = slot;
+		timer.prev = null;
+		timer.next = wheels[level][slot];
+		if (timer.next != null) {
+			timer.next.prev = timer;
+		}
+		wheels[level][slot] = timer;
+		armed++;
+	}
+
+	/**
+	 * Takes a timer out of its slot if it is in one
+	 *
+	 * @param timer: the timer
+	 */
+	private void cancel(Timer timer) {
+		if (timer.level < 0) {
+			return;
+		}
+		if (timer.prev == null) {
+			wheels[timer.level][timer.slot] = timer.next;
+		} else {
+			timer.prev.next = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.prev = timer.prev;
+		}
+		timer.level = -1;
+		timer.next = null;
+		timer.prev = null;
+		armed--;
+	}
+
+	/**
+	 * Works out when a reminder for items due on a day is sent
+	 *
+	 * @param day:  the due day number
+	 * @param kind: DUE or LATE
+	 * @return the time in milliseconds
+	 */
+	private long sendTime(int day, int kind) {
+		long midnight = day * DAY_MILLIS;
+		return midnight - TimeZone.getDefault().getOffset(midnight) - leads[kind];
+	}
+
+	/**
+	 * Function that gives the local day number of a time
+	 *
+	 * @param millis: the time in milliseconds
+	 * @return the number of days from 1/1/1970
+	 */
+	private static int dayOf(long millis) {
+		return (int) Math.floorDiv(millis + TimeZone.getDefault().getOffset(millis), DAY_MILLIS);
+	}
+
+	/**
+	 * Interface that reminders are sent to. Both methods do nothing by default.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when an item is coming due
+		 *
+		 * @param toDoItem: the item
+		 */
+		default void due(ToDoItem toDoItem) {
+		}
+
+		/**
+		 * Called when an item has become late
+		 *
+		 * @param toDoItem: the item
+		 */
+		default void late(ToDoItem toDoItem) {
+		}
+	}
+
+	/**
+	 * The reminders of one list, with a timer for each kind of reminder armed for
+	 * the next item that has not had one
+	 */
+	class Watch {
+		private final SortedList list; // the list watched
+		private final int[] sentThrough; // the last due day each kind of reminder was sent for
+		private final Timer[] timers; // the timer for each kind of reminder
+
+		private Watch(SortedList list) {
+			this.list = list;
+			sentThrough = new int[2];
+			timers = new Timer[] { new Timer(this, DUE), new Timer(this, LATE) };
+		}
+
+		private ReminderScheduler scheduler() {
+			return ReminderScheduler.this;
+		}
+
+		/**
+		 * Moves a timer up if an item was placed ahead of the one it is armed for
+		 *
+		 * @param toDoItem: the item just placed in the list
+		 */
+		void placed(ToDoItem toDoItem) {
+			int day = Math.floorDiv(toDoItem.getSortKey(), 10);
+			for (int kind = DUE; kind <= LATE; kind++) {
+				if (day > sentThrough[kind]) {
+					arm(kind, day, false);
+				}
+			}
+		}
+
+		/**
+		 * Arms each timer for the first item that has not had its reminder, as
+		 * after many items were merged into the list
+		 */
+		void rearm() {
+			for (int kind = DUE; kind <= LATE; kind++) {
+				ToDoItem next = list.getFirstAtLeast((sentThrough[kind] + 1) * 10);
+				if (next != null) {
+					arm(kind, Math.floorDiv(next.getSortKey(), 10), true);
+				}
+			}
+		}
+
+		/**
+		 * Sends one kind of reminder for every item whose time has passed and arms
+		 * the timer for the item after them
+		 *
+		 * @param kind: DUE or LATE
+		 * @return the number of reminders sent
+		 */
+		private int send(int kind) {
+			int through = dayOf(clock.millis() + leads[kind]);
+			List<ToDoItem> ready = new ArrayList<>();
+			ToDoItem item = list.getFirstAtLeast((sentThrough[kind] + 1) * 10);
+			while (item != null && Math.floorDiv(item.getSortKey(), 10) <= through) {
+				ready.add(item);
+				item = item.getNext();
+			}
+			sentThrough[kind] = Math.max(sentThrough[kind], through);
+			if (item != null) {
+				arm(kind, Math.floorDiv(item.getSortKey(), 10), true);
+			}
+			// the listener may change the list, so it is only called once the walk is done
+			for (ToDoItem toDoItem : ready) {
+				if (kind == DUE) {
+					listener.due(toDoItem);
+				} else {
+					listener.late(toDoItem);
+				}
+			}
+			return ready.size();
+		}
+
+		/**
+		 * Arms a timer for the items due on a day
+		 *
+		 * @param kind:   DUE or LATE
+		 * @param day:    the due day
+		 * @param always: true to arm it even if it is armed for an earlier time
+		 */
+		private void arm(int kind, int day, boolean always) {
+			Timer timer = timers[kind];
+			long deadline = sendTime(day, kind);
+			if (timer.level >= 0 && !always && timer.deadline <= deadline) {
+				return;
+			}
+			cancel(timer);
+			timer.deadline = deadline;
+			add(timer, currentTick + 1);
+		}
+	}
+
+	/**
+	 * A timer in a slot of a wheel, linked to the others in the same slot
+	 */
+	private static class Timer {
+		private final Watch watch; // the list the timer is for
+		private final int kind; // DUE or LATE
+		private long deadline; // when it goes off
+		private int level; // the wheel it is in, -1 if it is not armed
+		private int slot; // the slot it is in
+		private Timer prev; // the timer before it in the slot
+		private Timer next; // the timer after it in the slot
+
+		private Timer(Watch watch, int kind) {
+			this.watch = watch;
+			this.kind = kind;
+			level = -1;
+		}
+	}
+}
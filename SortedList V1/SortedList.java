@@ -1,10 +1,31 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Class that creates a sorted doubly linked list for a specific category
  * specified by the user.
  * 
+ * Besides the skip index, the list keeps a bucket for each sort key in the range
+ * of dates it holds, pointing at the last item with that key. Since sort keys are
+ * a day number and a priority digit, the buckets are few and close together, so
+ * most inserts find the item to go after in a bucket instead of searching. The
+ * buckets never cover more than MAX_BUCKETS sort keys, so an item due far from
+ * the rest is left out of them and inserts near it search the skip index.
+ * 
  * @author Jacob
  */
-public class SortedList {
+public class SortedList implements Iterable<ToDoItem> {
 
 	private String listName; // the name of the list
 	private ToDoItem head; // the first item in the list
@@ -12,6 +33,41 @@ public class SortedList {
 	private ToDoItem tail; // last item in the list
 	private int size; // the size of the list
 
+	private static final int MAX_LEVEL = 15; // the most index levels kept above the list
+	private ToDoItem[] indexHead; // the first item on each index level (level 0 is head)
+	private ToDoItem[] update; // scratch space for the items found on each level by a search
+	private int[] updateRank; // the positions of the items in update, -1 for the front
+	private int[] headWidth; // the position of the first item on each level, plus one
+	private boolean ranked; // true once positions were asked for, so link widths are kept up to date
+	private int levels; // the number of index levels in use
+	private int seed; // state for picking the index level of new items
+	private int sequence; // the tie breaker in the stamp given to the next item placed, read as unsigned
+	private static final int BUCKET_SCAN = 30; // the most empty buckets looked past before searching the index
+	private ToDoItem[] buckets; // the last item with each sort key, starting from bucketBase
+	private int bucketBase; // the sort key kept in buckets[0]
+	private static final int MAX_BUCKETS = 1 << 16; // the most sort keys the buckets cover, about 18 years
+	private boolean bucketsPartial; // true when some items have sort keys the buckets do not cover
+	private HashMap<String, ToDoItem> names; // the first item in the list with each name
+	private ListMetrics metrics; // where operation counts and timings are sent
+	private boolean measuring; // true when metrics is not the no-op ListMetrics.NONE
+	private int steps; // the number of items visited by the current operation
+	private DayClock clock; // the clock that decides which items are late
+	private ToDoItem lateBoundary; // the first item that is not late, null if every item is late
+	private int lateDay; // the day the late items were last worked out for
+	private int lateCount; // the number of late items at the front of the list
+	private int windowSize; // the number of items kept in the next-due window, 0 for none
+	private int windowCount; // the number of items in the window, at most windowSize
+	private ToDoItem windowEnd; // the last item in the window
+	private long windowVersion; // changes whenever an item in the window changes
+	private boolean snapshotting; // true once a snapshot was taken, so the snapshot tree is kept up to date
+	private boolean snapshotStale; // true when the snapshot tree has to be built again from the list
+	private ListSnapshot.Node snapshotRoot; // the items as a persistent tree
+	private ListSnapshot lastSnapshot; // the view of the current tree, null until one is asked for
+	private TextIndex text; // the words in each item's name and notes, null until the next search
+	private ListChanges changes; // where changes are published, null if nothing is listening
+	private ReminderScheduler.Watch reminders; // told about each item placed, null if the list is not watched
+	private ArrayList<RecurringItem> recurring; // templates whose occurrences are listed without being stored
+
 	/**
 	 * Constructor that initializes the sorted list and its fields
 	 * 
@@ -22,6 +78,23 @@ public class SortedList {
 		head = null;
 		tail = null;
 		size = 0;
+		indexHead = new ToDoItem[MAX_LEVEL + 1];
+		update = new ToDoItem[MAX_LEVEL + 1];
+		updateRank = new int[MAX_LEVEL + 1];
+		headWidth = new int[MAX_LEVEL + 1];
+		levels = 0;
+		seed = 0x2545F491;
+		buckets = new ToDoItem[0];
+		bucketBase = 0;
+		bucketsPartial = false;
+		names = new HashMap<>();
+		metrics = ListMetrics.NONE;
+		measuring = false;
+		clock = DayClock.system();
+		lateDay = clock.today();
+		lateBoundary = null;
+		lateCount = 0;
+		recurring = new ArrayList<>();
 	}
 
 	/**
@@ -69,194 +142,1749 @@ public class SortedList {
 		return size;
 	}
 
+	/**
+	 * Sets where the list sends its operation counts, items visited and timings.
+	 * ListMetrics.NONE turns them off, which is the default.
+	 * 
+	 * @param metrics: the metrics to record into
+	 */
+	public void setMetrics(ListMetrics metrics) {
+		this.metrics = (metrics == null) ? ListMetrics.NONE : metrics;
+		measuring = this.metrics != ListMetrics.NONE;
+		this.metrics.recordSize(size);
+	}
+
+	/**
+	 * Sets where the list's changes are published. Every insert, remove, move and
+	 * change to an item's name, notes or isDone flag is recorded there from then
+	 * on.
+	 * 
+	 * @param changes: the publisher to record changes in, or null to stop
+	 */
+	public void setChanges(ListChanges changes) {
+		this.changes = changes;
+	}
+
+	/**
+	 * Retrieves the watch that sends reminders for this list's items
+	 * 
+	 * @return the watch, or null if the list is not watched
+	 */
+	ReminderScheduler.Watch getReminders() {
+		return reminders;
+	}
+
+	/**
+	 * Sets the watch that is told about every item placed in this list, used by
+	 * ReminderScheduler.watch
+	 * 
+	 * @param reminders: the watch, or null
+	 */
+	void setReminders(ReminderScheduler.Watch reminders) {
+		this.reminders = reminders;
+	}
+
+	/**
+	 * Records a change with the item's current neighbors if the list's changes are
+	 * being published
+	 * 
+	 * @param type:     what kind of change it is, from ListChange
+	 * @param toDoItem: the item changed
+	 * @param field:    the field that changed, or null
+	 */
+	private void changed(int type, ToDoItem toDoItem, String field) {
+		if (changes != null) {
+			changes.record(type, toDoItem, toDoItem.getPrev(), toDoItem.getNext(), field);
+		}
+	}
+
+	/**
+	 * Sets the number of items kept in the next-due window. The window is the first
+	 * items of the list, and insert, remove and reschedule keep track of its last
+	 * item so that changes outside it can be told apart in O(1).
+	 * 
+	 * @param windowSize: the number of items in the window, 0 to turn it off
+	 */
+	public void setWindowSize(int windowSize) {
+		this.windowSize = Math.max(0, windowSize);
+		resetWindow();
+	}
+
+	/**
+	 * Retrieves the number of items kept in the next-due window
+	 * 
+	 * @return the window size
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * Retrieves the window's version, which goes up whenever an item enters,
+	 * leaves or changes inside the window. A dashboard can skip redrawing while
+	 * the version stays the same.
+	 * 
+	 * @return the window version
+	 */
+	public long getWindowVersion() {
+		refreshLate();
+		return windowVersion;
+	}
+
+	/**
+	 * Retrieves the items in the next-due window in list order
+	 * 
+	 * @return a list of the first items, at most the window size
+	 */
+	public List<ToDoItem> getWindow() {
+		refreshLate();
+		List<ToDoItem> window = new ArrayList<>(windowCount);
+		for (ToDoItem node = head; window.size() < windowCount; node = node.getNext()) {
+			window.add(node);
+		}
+		return window;
+	}
+
+	/**
+	 * Retrieves the item that is due first without removing it
+	 * 
+	 * @return the head of the list, or null if it is empty
+	 */
+	public ToDoItem peekFirst() {
+		return head;
+	}
+
+	/**
+	 * Retrieves the next item due from today on that is not done, either a stored
+	 * item or an occurrence of a recurring template. Stored items that are done are
+	 * walked past, and each template only gives its next occurrence.
+	 * 
+	 * @return the item, or null if nothing is left to do
+	 */
+	public ToDoItem peekNextDue() {
+		Iterator<ToDoItem> items = expanded(clock.today());
+		while (items.hasNext()) {
+			ToDoItem toDoItem = items.next();
+			if (!toDoItem.getIsDone()) {
+				return toDoItem;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a recurring template whose occurrences are listed by expanded,
+	 * getRange and peekNextDue without being stored in the list
+	 * 
+	 * @param template: the template to add
+	 */
+	public void addRecurring(RecurringItem template) {
+		recurring.add(template);
+	}
+
+	/**
+	 * Removes a recurring template and so all of its occurrences
+	 * 
+	 * @param template: the template to remove
+	 * @return true if the template was in the list
+	 */
+	public boolean removeRecurring(RecurringItem template) {
+		return recurring.remove(template);
+	}
+
+	/**
+	 * Retrieves the recurring templates of the list
+	 * 
+	 * @return the templates in the order they were added, which cannot be changed
+	 */
+	public List<RecurringItem> getRecurring() {
+		return Collections.unmodifiableList(recurring);
+	}
+
+	/**
+	 * Retrieves an iterator over the stored items due from a day on, with the
+	 * occurrences of the recurring templates merged in as they are reached. A
+	 * template with no end never runs out, so the caller stops reading once it
+	 * has gone far enough.
+	 * 
+	 * @param startDay: the first due day wanted, counted from 1/1/1970
+	 * @return an iterator over the items and occurrences in sort key order
+	 */
+	public Iterator<ToDoItem> expanded(int startDay) {
+		return getRange(startDay, Integer.MAX_VALUE / 10 - 1, 0, 9);
+	}
+
+	/**
+	 * Removes and returns the item that is due first
+	 * 
+	 * @return the old head of the list, or null if it is empty
+	 */
+	public ToDoItem pollFirst() {
+		ToDoItem first = head;
+		if (first != null) {
+			changed(ListChange.REMOVED, first, null);
+			unlink(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Updates the window after an item was linked into the list. While the list is
+	 * smaller than the window every item is in it. Once it is full, a new item is
+	 * in the window only if it sorts before the last item, since items with equal
+	 * keys go after the ones already there, and then the old last item drops out.
+	 * 
+	 * @param toDoItem: the item just linked in
+	 */
+	private void windowInserted(ToDoItem toDoItem) {
+		if (windowSize == 0) {
+			return;
+		}
+		if (windowCount < windowSize) {
+			windowCount++;
+			windowEnd = tail;
+			windowVersion++;
+		} else if (toDoItem.getSortKey() < windowEnd.getSortKey()) {
+			windowEnd = windowEnd.getPrev();
+			windowVersion++;
+		}
+	}
+
+	/**
+	 * Updates the window before an item is unlinked. If the item is in the window,
+	 * the item after the window's end moves into it.
+	 * 
+	 * @param toDoItem: the item about to be unlinked
+	 */
+	private void windowRemoved(ToDoItem toDoItem) {
+		if (!inWindow(toDoItem)) {
+			return;
+		}
+		windowVersion++;
+		if (windowEnd.getNext() != null) {
+			windowEnd = windowEnd.getNext();
+		} else {
+			windowCount--;
+			if (toDoItem == windowEnd) {
+				windowEnd = toDoItem.getPrev();
+			}
+		}
+	}
+
+	/**
+	 * Checks whether an item in the list is in the window. Only items that share
+	 * the last item's sort key need their position checked.
+	 * 
+	 * @param toDoItem: an item in this list
+	 * @return true if the item is one of the window's items
+	 */
+	private boolean inWindow(ToDoItem toDoItem) {
+		if (windowCount == 0) {
+			return false;
+		}
+		int sortKey = windowEnd.getSortKey();
+		if (toDoItem == windowEnd || toDoItem.getSortKey() < sortKey) {
+			return true;
+		} else if (toDoItem.getSortKey() > sortKey) {
+			return false;
+		}
+		for (ToDoItem node = windowEnd.getPrev(); node != null && node.getSortKey() == sortKey; node = node.getPrev()) {
+			if (node == toDoItem) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the window's last item by walking from the head
+	 */
+	private void resetWindow() {
+		windowCount = 0;
+		windowEnd = null;
+		for (ToDoItem node = head; node != null && windowCount < windowSize; node = node.getNext()) {
+			windowEnd = node;
+			windowCount++;
+		}
+		windowVersion++;
+	}
+
+	/**
+	 * Retrieves a view of the list as it is now that never changes, so other
+	 * threads can read it without locking while this list keeps changing. The
+	 * first snapshot builds a tree of the list in O(n) steps; after that the tree
+	 * is kept up to date on every change in O(log n) steps and each snapshot is
+	 * taken in O(1). Bulk changes such as insertAll and removeIf build the tree
+	 * again on the next snapshot.
+	 * 
+	 * Like every other method, this must be called by the thread changing the
+	 * list, or while holding the lock that guards it. Only reading the snapshot
+	 * it returns is free of locks.
+	 * 
+	 * @return a snapshot of the list
+	 */
+	public ListSnapshot snapshot() {
+		if (!snapshotting || snapshotStale) {
+			ToDoItem[] items = new ToDoItem[size];
+			int count = 0;
+			for (ToDoItem node = head; node != null; node = node.getNext()) {
+				items[count++] = node;
+			}
+			snapshotRoot = ListSnapshot.build(items, 0, count, 0);
+			snapshotting = true;
+			snapshotStale = false;
+			lastSnapshot = null;
+		}
+		if (lastSnapshot == null) {
+			lastSnapshot = new ListSnapshot(listName, snapshotRoot);
+		}
+		return lastSnapshot;
+	}
+
+	/**
+	 * Adds an item that was just linked in to the snapshot tree
+	 * 
+	 * @param toDoItem: the item just linked in
+	 */
+	private void snapshotInserted(ToDoItem toDoItem) {
+		if (!snapshotting || snapshotStale) {
+			return;
+		}
+		snapshotRoot = ListSnapshot.insert(snapshotRoot, toDoItem.getStamp(), toDoItem);
+		lastSnapshot = null;
+	}
+
+	/**
+	 * Takes an item out of the snapshot tree before it is unlinked or its key
+	 * changes
+	 * 
+	 * @param toDoItem: the item being removed
+	 */
+	private void snapshotRemoved(ToDoItem toDoItem) {
+		if (!snapshotting || snapshotStale) {
+			return;
+		}
+		snapshotRoot = ListSnapshot.remove(snapshotRoot, toDoItem.getStamp());
+		lastSnapshot = null;
+	}
+
+	/**
+	 * Sets the clock used to decide which items are late and works the late items
+	 * out again for it
+	 * 
+	 * @param clock: the clock to read today's date from
+	 */
+	public void setClock(DayClock clock) {
+		this.clock = clock;
+		resetLate();
+	}
+
+	/**
+	 * Retrieves the clock used to decide which items are late
+	 * 
+	 * @return the clock
+	 */
+	DayClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Retrieves the number of items that are late. Since the list is sorted by due
+	 * date the late items are always the first ones in the list.
+	 * 
+	 * @return the number of late items
+	 */
+	public int getLateCount() {
+		refreshLate();
+		return lateCount;
+	}
+
+	/**
+	 * Retrieves the items that are late, from the head of the list up to the first
+	 * item that is not late. Only stored items are given, the same ones counted by
+	 * getLateCount, so past occurrences of recurring templates are left out.
+	 * 
+	 * @return an iterator over the late items in list order
+	 */
+	public Iterator<ToDoItem> getOverdue() {
+		refreshLate();
+		return new RangeIterator(this, Integer.MIN_VALUE / 10, lateDay, 0, 9);
+	}
+
+	/**
+	 * Moves the late boundary when the day has changed since it was last checked.
+	 * Only the items that became late, or stopped being late if the clock went
+	 * back, are visited.
+	 */
+	public void refreshLate() {
+		int today = clock.today();
+		if (today == lateDay) {
+			return;
+		}
+		int notLateKey = (today + 1) * 10; // the smallest sort key that is not late
+		int oldLateCount = lateCount;
+		if (today > lateDay) {
+			while (lateBoundary != null && lateBoundary.getSortKey() < notLateKey) {
+				lateCount++;
+				lateBoundary = lateBoundary.getNext();
+			}
+		} else {
+			ToDoItem last = (lateBoundary == null) ? tail : lateBoundary.getPrev();
+			while (last != null && last.getSortKey() >= notLateKey) {
+				lateCount--;
+				lateBoundary = last;
+				last = last.getPrev();
+			}
+		}
+		lateDay = today;
+		if (Math.min(oldLateCount, lateCount) < windowCount && oldLateCount != lateCount) {
+			windowVersion++; // items in the window became late or stopped being late
+		}
+	}
+
+	/**
+	 * Counts an item that was just placed in the list if it is late, or makes it
+	 * the late boundary if it is the first item that is not late
+	 * 
+	 * @param toDoItem: the item just linked into the list
+	 */
+	private void markLate(ToDoItem toDoItem) {
+		int notLateKey = (lateDay + 1) * 10;
+		if (toDoItem.getSortKey() < notLateKey) {
+			lateCount++;
+		} else {
+			ToDoItem before = toDoItem.getPrev();
+			if (before == null || before.getSortKey() < notLateKey) {
+				lateBoundary = toDoItem;
+			}
+		}
+	}
+
+	/**
+	 * Works out the late count and the late boundary from the head, visiting only
+	 * the late items
+	 */
+	private void resetLate() {
+		lateDay = clock.today();
+		lateCount = 0;
+		lateBoundary = head;
+		while (lateBoundary != null && lateBoundary.getSortKey() < (lateDay + 1) * 10) {
+			lateCount++;
+			lateBoundary = lateBoundary.getNext();
+		}
+	}
+
 	/**
 	 * Inserts a ToDoItem into its correct position in the list. The date and the
 	 * entered priority are used to correctly place items. The order entered is the
 	 * tie breaker for same day and priority items. If the MM/dd is 12/26 and
 	 * priority is 1 (high) the sort value with become 12261
 	 * 
-	 * When searching for the correct sort location, the insert method checks
-	 * against the current ToDoItem's sort value to decide whether to move in the
-	 * direction of the next or previous ToDoItems.
+	 * The insert position is found through the skip index layered over the list,
+	 * so the search drops down from the top index level to the linked items in
+	 * O(log n) steps. The current pointer is left on the item the search stopped
+	 * at, which is the item just before the new one (or the old head if the new
+	 * item became the head).
 	 * 
 	 * @param the ToDoItem being added to the list
 	 * @return true if correctly inserted and false otherwise
 	 */
 	public boolean insert(ToDoItem toDoItem) {
+		if (!measuring) {
+			boolean placed = place(toDoItem);
+			changed(ListChange.INSERTED, toDoItem, null);
+			return placed;
+		}
+		long start = System.nanoTime();
+		ToDoItem finger = current;
+		steps = 0;
+		boolean placed = place(toDoItem);
+		boolean nearFinger = finger != null && (finger == toDoItem.getPrev() || finger == toDoItem.getNext());
+		metrics.recordInsert(steps, nearFinger, System.nanoTime() - start);
+		metrics.recordSize(size);
+		changed(ListChange.INSERTED, toDoItem, null);
+		return placed;
+	}
+
+	/**
+	 * Links a ToDoItem into its sorted position and every index
+	 * 
+	 * @param toDoItem: the ToDoItem being added to the list
+	 * @return true if correctly inserted
+	 */
+	private boolean place(ToDoItem toDoItem) {
+		refreshLate();
+		stamp(toDoItem);
 		// the list is empty
-		
 		if (size == 0) {
 			// set the head and the next for the head (null)
 			head = toDoItem;
-			System.out.println("H1" + head.getName());
 			head.setNext(null);
 			head.setPrev(null);
+			tail = toDoItem;
 			// the current node is the toDoItem when there is only one item
 			current = toDoItem;
+			updateRank[0] = -1;
+			index(toDoItem, randomLevel(), update);
+			setBucket(toDoItem);
+			snapshotInserted(toDoItem);
+			if (text != null) {
+				text.add(toDoItem);
+			}
+			addName(toDoItem);
+			markLate(toDoItem);
 			size++;
+			windowInserted(toDoItem);
+			if (reminders != null) {
+				reminders.placed(toDoItem);
+			}
 			return true;
-		} else if (head.getNext() == null) {
-			if (head.getSortNum() > toDoItem.getSortNum()) {
-				tail = head;
-				head = toDoItem;
-				head.setNext(tail);
-				head.setPrev(null);
-				tail.setPrev(head);
-				tail.setNext(null);
-				head = toDoItem;
-				size++;
-				return true;
-			} else {
-				// case where the head is the only item in the list
-				tail = toDoItem;
-				head.setNext(tail);
-				tail.setPrev(head);
-				tail.setNext(null);
-				current = head; // sets current for the first time
-				size++;
-				return true;
+		}
+
+		// finds the last item that sorts before or with the new item so that equal
+		// items stay in the order they were entered. An item that is not raised into
+		// the skip index only needs that one item, which the buckets usually give
+		// without a search. Once positions are kept, every insert searches so the
+		// widths of the links passed over can be updated.
+		int sortKey = toDoItem.getSortKey();
+		int height = randomLevel();
+		boolean quick = height == 0 && !ranked;
+		ToDoItem before;
+		if (quick && sortKey >= tail.getSortKey()) { // goes at the end
+			before = tail;
+		} else if (quick && sortKey < head.getSortKey()) { // goes at the front
+			before = null;
+		} else {
+			before = quick ? bucketBefore(sortKey) : null;
+			if (before == null) {
+				before = findLastAtMost(sortKey, update);
 			}
-		} else if (head.compareItems(toDoItem) == 1) {
-			// case where the head is at a later date or priority than the item being
-			// entered
-			head.setPrev(toDoItem);
-			head.getPrev().setNext(head);
-			head.getPrev().setPrev(null);
+		}
+		ToDoItem after = (before == null) ? head : before.getNext();
+
+		toDoItem.setPrev(before);
+		toDoItem.setNext(after);
+		if (before == null) { // new head
 			head = toDoItem;
-			size++;
-			return true;
-		} else if (toDoItem.compareItems(tail) == 1 || toDoItem.compareItems(tail) == 0) { // check against tail
-			// case where the ToDoItem is a further date and lower priority than the tail
-			tail.setNext(toDoItem);
-			tail.getNext().setPrev(tail);
-			tail.getNext().setNext(null);
+		} else {
+			before.setNext(toDoItem);
+		}
+		if (after == null) { // new tail
 			tail = toDoItem;
-			size++;
-			return true;
-		} else if (current.compareItems(toDoItem) == -1 || current.compareItems(toDoItem) == 0) {
-			/*
-			 * Case where the ToDoItem is greater than or equal to the current ToDoItem so
-			 * search to the right until the correct location is found
-			 */
-			while (toDoItem.compareItems(current.getNext()) == 1) {
-				current = current.getNext();
-			}
-			toDoItem.setNext(current.getNext());
-			toDoItem.getNext().setPrev(toDoItem);
-			current.setNext(toDoItem);
-			current.getNext().setPrev(current);
-			current = current.getNext();
-			size++;
-			return true;
-		} else if (current.compareItems(toDoItem) == 1) {
-			/*
-			 * Case where the ToDoItem is less the current ToDoItem so search to the left
-			 * until the correct location is found
-			 */
-			while (toDoItem.compareItems(current.getPrev()) == -1) {
-				current = current.getPrev();
-			}
-			toDoItem.setPrev(current.getPrev());
-			toDoItem.getPrev().setNext(toDoItem);
-			current.setPrev(toDoItem);
-			current.getPrev().setNext(current);
-			current = current.getPrev();
-			size++;
-			return true;
 		} else {
-			return false;
+			after.setPrev(toDoItem);
+		}
+		index(toDoItem, height, update);
+		setBucket(toDoItem);
+		snapshotInserted(toDoItem);
+		if (text != null) {
+			text.add(toDoItem);
 		}
+		addName(toDoItem);
+		markLate(toDoItem);
+		current = (before == null) ? after : before;
+		size++;
+		windowInserted(toDoItem);
+		if (reminders != null) {
+			reminders.placed(toDoItem);
+		}
+		return true;
 	}
 
 	/**
-	 * Retrieves a specified ToDoItem
+	 * Inserts a group of ToDoItems at once. The group is sorted on its own first,
+	 * then merged with the list in a single pass from the head, so loading n items
+	 * costs O(n log n) instead of one search per item. Items keep the same order
+	 * they would have if they were inserted one at a time in the collection's
+	 * order. When the list is empty this is a straight bulk load of the sorted
+	 * group.
 	 * 
-	 * @param the name of the item to be found
-	 * @return the ToDoItem once found and null otherwise
+	 * @param toDoItems: the ToDoItems being added to the list
+	 * @return true if the items were inserted and false if there were none
 	 */
-	public ToDoItem get(String name) {
-		ToDoItem placeHolder = head;
-		for (int i = 0; i < size; i++) {
-			if (placeHolder.getName().equals(name)) {
-				return placeHolder;
-			}
-			placeHolder = placeHolder.getNext();
+	public boolean insertAll(Collection<ToDoItem> toDoItems) {
+		if (toDoItems.isEmpty()) {
+			return false;
 		}
-		return null;
+		ToDoItem[] batch = toDoItems.toArray(new ToDoItem[0]);
+		// the object sort is stable, so items with the same sort key keep their order
+		Arrays.sort(batch, (first, second) -> Integer.compare(first.getSortKey(), second.getSortKey()));
+		merge(batch, batch.length);
+		return true;
 	}
 
 	/**
-	 * Checks if a requested to do item is in the list
+	 * Bulk loads ToDoItems that are already in sorted order into an empty list
+	 * without sorting them again, as when a saved list is read back in
 	 * 
-	 * @param the name of the ToDoItem
-	 * @return true if found and false otherwise
+	 * @param toDoItems: the items in list order
+	 * @param count:     the number of items to take from the array
+	 * @return true if the items were loaded and false if the list was not empty or
+	 *         the items were out of order
 	 */
-	public boolean contains(String name) {
-		ToDoItem placeHolder = head;
-		for (int i = 0; i < size; i++) {
-			if (placeHolder.getName().equals(name)) {
-				return true;
+	public boolean loadSorted(ToDoItem[] toDoItems, int count) {
+		if (size != 0 || count == 0) {
+			return false;
+		}
+		for (int i = 1; i < count; i++) {
+			if (toDoItems[i - 1].compareItems(toDoItems[i]) == 1) {
+				return false;
 			}
-			placeHolder = placeHolder.getNext();
 		}
-		return false;
+		merge(toDoItems, count);
+		return true;
 	}
 
 	/**
-	 * Removes a specified ToDoList item
+	 * Merges a sorted group of new items into the list in one pass. On equal sort
+	 * keys the items already in the list come first. The head, tail, size and
+	 * current pointer are set once at the end, and the skip index is rebuilt in
+	 * the same linear time.
 	 * 
-	 * @param the name of the ToDoItem to be removed
-	 * @return true if the item is found and removed and false otherwise
+	 * @param batch: the new items in sorted order
+	 * @param count: the number of items in batch
 	 */
-	public boolean remove(String name) {
-		if (head.equals(null)) { // list is empty
-			return false;
-		} else if (size == 1) { // only one item in the list
-			if (head.getName().equals(name)) {
-				clear();
-				return true;
-			}
-		} else if (size == 2) { // if there are only two items in the list
-			if (head.getName().equals(name)) { // head is being removed
-				head = tail;
-				tail = null;
-				head.setNext(null);
-				head.setPrev(null);
-				size--;
-				return true;
-			} else if (tail.getName().equals(name)) { // tail is being removed
-				head.setNext(null);
-				tail = null;
-				size--;
-				return true;
+	private void merge(ToDoItem[] batch, int count) {
+		long start = measuring ? System.nanoTime() : 0;
+		steps = 0;
+		if (Integer.toUnsignedLong(sequence) + count >= 0xFFFFFFFFL) { // stamps can not be renumbered mid-merge
+			renumber();
+		}
+		ToDoItem node = head; // the next item of the old list to place
+		ToDoItem last = null; // the last item placed in the merged list
+		int next = 0; // the next item of the batch to place
+		head = null;
+		while (node != null || next < count) {
+			ToDoItem pick;
+			if (next == count || (node != null && node.getSortKey() <= batch[next].getSortKey())) {
+				pick = node;
+				node = node.getNext();
 			} else {
-				return false;
+				pick = batch[next++];
+				pick.setLevels(randomLevel());
+				stamp(pick);
+				addName(pick);
+				current = pick;
 			}
-		} else if (head.getName().equals(name)) { // if the head is removed
-			head.getNext().setPrev(null);
-			head = head.getNext();
-			size--;
-			return true;
-		} else if (tail.getName().equals(name)) { // if the tail is removed
-			tail = tail.getPrev();
-			tail.setNext(null);
-			size--;
-			return true;
-		} else { // removes everything in between
-			current = head;
-			for (int i = 0; i < size; i++) {
-				if (current.getName().equals(name)) {
-					current.getPrev().setNext(current.getNext());
-					current.getNext().setPrev(current.getPrev());
-					current = current.getNext();
-					size--;
-					return true;
-				}
-				current = current.getNext();
+			steps++;
+			pick.setPrev(last);
+			if (last == null) {
+				head = pick;
+			} else {
+				last.setNext(pick);
 			}
-			return false;
+			last = pick;
+		}
+		last.setNext(null);
+		tail = last;
+		size += count;
+		for (int i = 0; i < count && changes != null; i++) {
+			changed(ListChange.INSERTED, batch[i], null);
+		}
+		reindex();
+		resetBuckets();
+		resetLate();
+		resetWindow();
+		snapshotStale = true;
+		text = null;
+		if (reminders != null) {
+			reminders.rearm();
+		}
+		if (measuring) {
+			metrics.recordInsertAll(count, steps, System.nanoTime() - start);
+			metrics.recordSize(size);
 		}
-		return false;
+	}
+
+	/**
+	 * Relinks every index level in one walk down the list, keeping each item's
+	 * height
+	 */
+	private void reindex() {
+		Arrays.fill(indexHead, null);
+		Arrays.fill(update, null); // holds the last item seen on each level
+		levels = 0;
+		int position = 0;
+		for (ToDoItem node = head; node != null; node = node.getNext()) {
+			for (int level = 1; level <= node.getLevels(); level++) {
+				if (update[level] == null) {
+					indexHead[level] = node;
+					headWidth[level] = position + 1;
+				} else {
+					update[level].setSkip(level, node);
+					update[level].setWidth(level, position - updateRank[level]);
+				}
+				update[level] = node;
+				updateRank[level] = position;
+			}
+			levels = Math.max(levels, node.getLevels());
+			position++;
+		}
+		for (int level = 1; level <= levels; level++) {
+			update[level].setSkip(level, null);
+			update[level].setWidth(level, size - updateRank[level]);
+		}
+	}
+
+	/**
+	 * Gives an item its stamp: its sort key with the number of items placed before
+	 * it as the tie breaker. Items are always placed after the items with the same
+	 * key, so ordering by stamp gives the same order as the list. The snapshot
+	 * tree and text index are keyed on it.
+	 * 
+	 * @param toDoItem: the item being placed
+	 */
+	private void stamp(ToDoItem toDoItem) {
+		if (sequence == -1) { // the last tie breaker, so the next would wrap around
+			renumber();
+		}
+		toDoItem.setStamp(ListSnapshot.key(toDoItem.getSortKey(), sequence++));
+	}
+
+	/**
+	 * Stamps every item again in list order with tie breakers counted from 0, for
+	 * when the tie breakers are about to run out. The stamps keep their order, but
+	 * the snapshot tree and text index keyed on the old stamps are built again,
+	 * and a ListPage served before may repeat or skip items with the same sort key
+	 * as its last item.
+	 */
+	private void renumber() {
+		sequence = 0;
+		for (ToDoItem node = head; node != null; node = node.getNext()) {
+			node.setStamp(ListSnapshot.key(node.getSortKey(), sequence++));
+		}
+		snapshotStale = true;
+		text = null;
+	}
+
+	/**
+	 * Walks the skip index to find the last item whose sort value is less than or
+	 * equal to the given value. The item found on each index level is stored in
+	 * update so that a new item can be linked in after them. Passing null for
+	 * update makes the search read only, so it is safe from several threads.
+	 * 
+	 * @param sortKey: the sort value being searched for
+	 * @param update:  array filled with the last item visited on each index level,
+	 *                 or null
+	 * @return the last item at or before the sort value, or null if every item
+	 *         sorts after it
+	 */
+	private ToDoItem findLastAtMost(int sortKey, ToDoItem[] update) {
+		ToDoItem node = null; // null stands for the front of the list
+		int rank = -1; // the position of node, counted only when positions are kept
+		boolean counting = ranked && update != null;
+		for (int level = levels; level > 0; level--) {
+			ToDoItem next = forward(node, level);
+			while (next != null && next.getSortKey() <= sortKey) {
+				if (counting) {
+					rank += width(node, level);
+				}
+				node = next;
+				next = node.getSkip(level);
+				steps++;
+			}
+			if (update != null) {
+				update[level] = node;
+				updateRank[level] = rank;
+			}
+		}
+		ToDoItem next = (node == null) ? head : node.getNext();
+		while (next != null && next.getSortKey() <= sortKey) {
+			node = next;
+			next = node.getNext();
+			rank++;
+			steps++;
+		}
+		if (update != null) {
+			updateRank[0] = rank;
+		}
+		return node;
+	}
+
+	/**
+	 * Gives the item after a node on an index level, where a null node is the
+	 * front of the list
+	 * 
+	 * @param node:  the item to move forward from, or null for the front
+	 * @param level: the index level to move along
+	 * @return the next item on that level
+	 */
+	private ToDoItem forward(ToDoItem node, int level) {
+		return (node == null) ? indexHead[level] : node.getSkip(level);
+	}
+
+	/**
+	 * Gives the width of the link after a node on an index level, where a null
+	 * node is the front of the list
+	 * 
+	 * @param node:  the item the link starts from, or null for the front
+	 * @param level: the index level
+	 * @return how many places the link moves forward
+	 */
+	private int width(ToDoItem node, int level) {
+		return (node == null) ? headWidth[level] : node.getWidth(level);
+	}
+
+	/**
+	 * Sets the width of the link after a node on an index level
+	 * 
+	 * @param node:  the item the link starts from, or null for the front
+	 * @param level: the index level
+	 * @param width: how many places the link moves forward
+	 */
+	private void setWidth(ToDoItem node, int level, int width) {
+		if (node == null) {
+			headWidth[level] = width;
+		} else {
+			node.setWidth(level, width);
+		}
+	}
+
+	/**
+	 * Links an item into the skip index using the predecessors found by the last
+	 * search. The item's height is picked at random by randomLevel so that each
+	 * level holds about a quarter of the items of the level below it.
+	 * 
+	 * @param toDoItem: the item being added to the index
+	 * @param height:   the number of index levels the item is on
+	 * @param update:   the last item before toDoItem on each index level
+	 */
+	private void index(ToDoItem toDoItem, int height, ToDoItem[] update) {
+		while (levels < height) { // the index grows a level
+			levels++;
+			update[levels] = null;
+			updateRank[levels] = -1;
+			headWidth[levels] = size + 1; // an empty level links the front to the end
+		}
+		toDoItem.setLevels(height);
+		int position = updateRank[0] + 1; // where the new item is, when positions are kept
+		for (int level = 1; level <= height; level++) {
+			ToDoItem before = update[level];
+			toDoItem.setSkip(level, forward(before, level));
+			if (before == null) {
+				indexHead[level] = toDoItem;
+			} else {
+				before.setSkip(level, toDoItem);
+			}
+			if (ranked) { // the link over the new item is split in two
+				int width = width(before, level);
+				setWidth(before, level, position - updateRank[level]);
+				toDoItem.setWidth(level, width + 1 - (position - updateRank[level]));
+			}
+		}
+		for (int level = height + 1; ranked && level <= levels; level++) { // links over it grow by one
+			setWidth(update[level], level, width(update[level], level) + 1);
+		}
+	}
+
+	/**
+	 * Unlinks an item from every index level it is on. Each level is searched by
+	 * stamp, which orders items with the same sort key too, so the search stops
+	 * right before the item on every level.
+	 * 
+	 * @param toDoItem: the item being taken out of the index
+	 */
+	private void unindex(ToDoItem toDoItem) {
+		long stamp = toDoItem.getStamp();
+		ToDoItem node = null;
+		for (int level = levels; level > 0; level--) {
+			ToDoItem next = forward(node, level);
+			while (next != null && next.getStamp() < stamp) {
+				node = next;
+				next = node.getSkip(level);
+				steps++;
+			}
+			if (level <= toDoItem.getLevels()) {
+				if (node == null) {
+					indexHead[level] = toDoItem.getSkip(level);
+				} else {
+					node.setSkip(level, toDoItem.getSkip(level));
+				}
+				if (ranked) { // the links before and after it join
+					setWidth(node, level, width(node, level) + toDoItem.getWidth(level) - 1);
+				}
+			} else if (ranked) { // the link over it shrinks by one
+				setWidth(node, level, width(node, level) - 1);
+			}
+		}
+		while (levels > 0 && indexHead[levels] == null) { // drop empty top levels
+			levels--;
+		}
+		toDoItem.setLevels(0);
+	}
+
+	/**
+	 * Picks the number of index levels for a new item. Each extra level has a one
+	 * in four chance, using a xorshift generator so no objects are created.
+	 * 
+	 * @return the height of the new item in the index
+	 */
+	private int randomLevel() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		int bits = seed;
+		int height = 0;
+		while ((bits & 3) == 0 && height < MAX_LEVEL) {
+			height++;
+			bits >>>= 2;
+		}
+		return height;
+	}
+
+	/**
+	 * Finds the item a new item goes after by looking back through the buckets
+	 * from its sort key. The buckets are only looked through for BUCKET_SCAN sort
+	 * keys, since a long gap of empty keys is quicker to cross with the skip
+	 * index.
+	 * 
+	 * @param sortKey: the sort key of the new item
+	 * @return the last item with a sort key less than or equal to sortKey, or null
+	 *         if none was found in the buckets looked at or the key is outside
+	 *         them
+	 */
+	private ToDoItem bucketBefore(int sortKey) {
+		int slot = sortKey - bucketBase;
+		if (slot < 0 || slot >= buckets.length) {
+			return null;
+		}
+		int stop = Math.max(slot - BUCKET_SCAN, -1);
+		for (; slot > stop; slot--) {
+			if (buckets[slot] != null) {
+				return buckets[slot];
+			}
+			steps++;
+		}
+		return null;
+	}
+
+	/**
+	 * Records an item as the last one with its sort key, growing the buckets if
+	 * the key is outside the range they cover. The buckets at least double when
+	 * they grow, with the new room on the side the key fell outside of, up to
+	 * MAX_BUCKETS. A key that would need more is left out of the buckets.
+	 * 
+	 * @param toDoItem: the item that is now last among the items with its key
+	 */
+	private void setBucket(ToDoItem toDoItem) {
+		int sortKey = toDoItem.getSortKey();
+		if (buckets.length == 0) {
+			buckets = new ToDoItem[64];
+			bucketBase = sortKey - 32;
+		} else if (sortKey < bucketBase || sortKey >= bucketBase + buckets.length) {
+			long low = Math.min(sortKey, bucketBase);
+			long span = Math.max(sortKey, bucketBase + buckets.length - 1L) - low + 1;
+			if (span > MAX_BUCKETS) {
+				bucketsPartial = true;
+				return;
+			}
+			int length = (int) Math.min(Math.max(span, buckets.length * 2), MAX_BUCKETS);
+			int base = (int) ((sortKey < bucketBase) ? low - (length - span) : low);
+			if (bucketsPartial) { // items left out before may be inside the new range
+				fillBuckets(base, length);
+			} else {
+				ToDoItem[] grown = new ToDoItem[length];
+				System.arraycopy(buckets, 0, grown, bucketBase - base, buckets.length);
+				buckets = grown;
+				bucketBase = base;
+			}
+		}
+		buckets[sortKey - bucketBase] = toDoItem;
+	}
+
+	/**
+	 * Takes an item out of the buckets while it is still linked into the list. If
+	 * it was the last item with its key, the item before it takes its place when
+	 * it has the same key.
+	 * 
+	 * @param toDoItem: the item whose key is being removed or changed
+	 */
+	private void clearBucket(ToDoItem toDoItem) {
+		int sortKey = toDoItem.getSortKey();
+		int slot = sortKey - bucketBase;
+		if (slot >= 0 && slot < buckets.length && buckets[slot] == toDoItem) {
+			ToDoItem before = toDoItem.getPrev();
+			buckets[slot] = (before != null && before.getSortKey() == sortKey) ? before : null;
+		}
+	}
+
+	/**
+	 * Shrinks the buckets once the list's sort keys cover less than a quarter of
+	 * them, so dates that have been cleared out do not keep their room. Once the
+	 * items left out of the buckets are removed, the buckets are filled again to
+	 * cover the whole list.
+	 */
+	private void shrinkBuckets() {
+		if (head == null) {
+			buckets = new ToDoItem[0];
+			bucketsPartial = false;
+			return;
+		}
+		int first = head.getSortKey();
+		long span = (long) tail.getSortKey() - first + 1;
+		if (bucketsPartial && span * 2 <= MAX_BUCKETS) { // the items left out are gone or now close
+			resetBuckets();
+		} else if (buckets.length > 64 && span * 4 < buckets.length) {
+			int length = (int) Math.max(64, span * 2);
+			int base = first - (int) (length - span) / 2;
+			ToDoItem[] shrunk = new ToDoItem[length];
+			System.arraycopy(buckets, first - bucketBase, shrunk, first - base, (int) span);
+			buckets = shrunk;
+			bucketBase = base;
+		}
+	}
+
+	/**
+	 * Fills the buckets again in one walk down the list, sized to the range of
+	 * sort keys in it. If the range is wider than MAX_BUCKETS, the buckets are
+	 * centered on the middle item instead.
+	 */
+	private void resetBuckets() {
+		if (head == null) {
+			buckets = new ToDoItem[0];
+			bucketsPartial = false;
+			return;
+		}
+		long span = (long) tail.getSortKey() - head.getSortKey() + 1;
+		if (span * 2 <= MAX_BUCKETS) {
+			int length = (int) Math.max(64, span * 2);
+			fillBuckets(head.getSortKey() - (int) (length - span) / 2, length);
+			return;
+		}
+		ToDoItem middle = head;
+		for (int i = 0; i < size / 2; i++) {
+			middle = middle.getNext();
+		}
+		fillBuckets(middle.getSortKey() - MAX_BUCKETS / 2, MAX_BUCKETS);
+	}
+
+	/**
+	 * Replaces the buckets with new ones covering a range of sort keys and fills
+	 * them in one walk down the list
+	 * 
+	 * @param base:   the sort key kept in the first bucket
+	 * @param length: the number of sort keys covered
+	 */
+	private void fillBuckets(int base, int length) {
+		buckets = new ToDoItem[length];
+		bucketBase = base;
+		bucketsPartial = false;
+		for (ToDoItem node = head; node != null; node = node.getNext()) {
+			int slot = node.getSortKey() - base;
+			if (slot >= 0 && slot < length) {
+				buckets[slot] = node;
+			} else {
+				bucketsPartial = true;
+			}
+		}
+	}
+
+	/**
+	 * Changes the due date and priority of an item in this list and moves it to its
+	 * new position. The new sort key is read straight from the date. If the item
+	 * still sorts between its neighbors it keeps its place and only its key
+	 * changes; otherwise it is unlinked and placed again through the skip index in
+	 * O(log n) steps. Like a new item, it goes after any items with the same key.
+	 * 
+	 * @param toDoItem:    the item to change, which must be in this list
+	 * @param newDueDate:  the new due date, as "M/d/yy"
+	 * @param newPriority: the new priority
+	 * @return true if the item was changed and false if it is not in this list
+	 */
+	public boolean reschedule(ToDoItem toDoItem, String newDueDate, int newPriority) {
+		if (toDoItem.getList() != this) {
+			return false;
+		}
+		int sortKey = DayClock.parseDay(newDueDate) * 10 + newPriority;
+		refreshLate();
+		ToDoItem before = toDoItem.getPrev();
+		ToDoItem after = toDoItem.getNext();
+		int notLateKey = (lateDay + 1) * 10;
+		boolean fits = (before == null || before.getSortKey() <= sortKey)
+				&& (after == null || after.getSortKey() > sortKey);
+		boolean sameLate = (toDoItem.getSortKey() < notLateKey) == (sortKey < notLateKey);
+		if (fits && sameLate) {
+			if (inWindow(toDoItem)) {
+				windowVersion++;
+			}
+			clearBucket(toDoItem);
+			snapshotRemoved(toDoItem);
+			if (text != null) {
+				text.remove(toDoItem);
+			}
+			toDoItem.schedule(newDueDate, newPriority, sortKey);
+			stamp(toDoItem);
+			setBucket(toDoItem);
+			snapshotInserted(toDoItem);
+			if (text != null) {
+				text.add(toDoItem);
+			}
+			if (reminders != null) {
+				reminders.placed(toDoItem);
+			}
+			changed(ListChange.MOVED, toDoItem, null);
+			return true;
+		}
+		unlink(toDoItem);
+		toDoItem.schedule(newDueDate, newPriority, sortKey);
+		place(toDoItem);
+		changed(ListChange.MOVED, toDoItem, null);
+		return true;
+	}
+
+	/**
+	 * Retrieves a specified ToDoItem. If more than one item has the name, the one
+	 * closest to the head is returned.
+	 * 
+	 * @param the name of the item to be found
+	 * @return the ToDoItem once found and null otherwise
+	 */
+	public ToDoItem get(String name) {
+		if (!measuring) {
+			return names.get(name);
+		}
+		long start = System.nanoTime();
+		ToDoItem toDoItem = names.get(name);
+		metrics.recordGet(toDoItem == null ? 0 : 1, System.nanoTime() - start);
+		return toDoItem;
+	}
+
+	/**
+	 * Checks if a requested to do item is in the list
+	 * 
+	 * @param the name of the ToDoItem
+	 * @return true if found and false otherwise
+	 */
+	public boolean contains(String name) {
+		if (!measuring) {
+			return names.containsKey(name);
+		}
+		long start = System.nanoTime();
+		boolean found = names.containsKey(name);
+		metrics.recordGet(found ? 1 : 0, System.nanoTime() - start);
+		return found;
+	}
+
+	/**
+	 * Retrieves the first item whose sort key is at least the given key, found
+	 * through the skip index in O(log n) steps. The search does not change the
+	 * list, so readers on several threads may call it at once.
+	 * 
+	 * @param sortKey: the smallest sort key wanted
+	 * @return the first ToDoItem at or after the key, or null if there is none
+	 */
+	public ToDoItem getFirstAtLeast(int sortKey) {
+		ToDoItem before = findLastAtMost(sortKey - 1, null);
+		return (before == null) ? head : before.getNext();
+	}
+
+	/**
+	 * Finds an item near the middle of a run of items by count, for splitting the
+	 * run in ItemSpliterator. Every item is on an index level with a one in four
+	 * chance of reaching the next, so the items of a level inside the run are an
+	 * even sample of it. The middle item of the highest level with enough of them
+	 * splits the run close to half. The list is only read.
+	 * 
+	 * @param first: the first item of the run
+	 * @param last:  the last item of the run
+	 * @return an item after first and no later than last, or null if the index
+	 *         has fewer than two items in the run
+	 */
+	ToDoItem splitPoint(ToDoItem first, ToDoItem last) {
+		long low = first.getStamp();
+		long high = last.getStamp();
+		ToDoItem node = null;
+		ToDoItem best = null;
+		for (int level = levels; level > 0; level--) {
+			ToDoItem next = forward(node, level);
+			while (next != null && next.getStamp() < low) {
+				node = next;
+				next = node.getSkip(level);
+			}
+			int count = 0; // the items of this level in the run
+			for (ToDoItem item = next; item != null && item.getStamp() <= high; item = item.getSkip(level)) {
+				count++;
+			}
+			if (count >= 2) {
+				best = next;
+				for (int i = 0; i < count / 2; i++) {
+					best = best.getSkip(level);
+				}
+				if (count >= 8) { // enough of a sample that lower levels would only cost more
+					return best;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Retrieves the item at a position in the list. Each index link knows how many
+	 * items it passes over, so the item is reached in O(log n) steps. The link
+	 * widths are only kept once positions are first asked for, and that first
+	 * call builds them in one walk of the list, so it changes the list as far as
+	 * locking goes.
+	 * 
+	 * @param index: the position, starting at 0 for the head
+	 * @return the ToDoItem at that position
+	 */
+	public ToDoItem get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		rank();
+		ToDoItem node = null;
+		int rank = -1;
+		for (int level = levels; level > 0; level--) {
+			ToDoItem next = forward(node, level);
+			while (next != null && rank + width(node, level) <= index) {
+				rank += width(node, level);
+				node = next;
+				next = node.getSkip(level);
+				steps++;
+			}
+		}
+		if (node == null) { // no link was taken, so the walk starts at the head
+			node = head;
+			rank = 0;
+		}
+		for (; rank < index; rank++) {
+			node = node.getNext();
+			steps++;
+		}
+		return node;
+	}
+
+	/**
+	 * Retrieves the position of an item in the list in O(log n) steps, found by
+	 * its stamp
+	 * 
+	 * @param toDoItem: the item to look for
+	 * @return the position of the item, starting at 0, or -1 if it is not in this
+	 *         list
+	 */
+	public int rankOf(ToDoItem toDoItem) {
+		if (toDoItem == null || toDoItem.getList() != this) {
+			return -1;
+		}
+		rank();
+		long stamp = toDoItem.getStamp();
+		ToDoItem node = null;
+		int rank = -1;
+		for (int level = levels; level > 0; level--) {
+			ToDoItem next = forward(node, level);
+			while (next != null && next.getStamp() <= stamp) {
+				rank += width(node, level);
+				node = next;
+				next = node.getSkip(level);
+				steps++;
+			}
+		}
+		ToDoItem next = (node == null) ? head : node.getNext();
+		while (next != null && next.getStamp() <= stamp) {
+			node = next;
+			next = node.getNext();
+			rank++;
+			steps++;
+		}
+		return (node == toDoItem) ? rank : -1;
+	}
+
+	/**
+	 * Retrieves a page of items starting at a position
+	 * 
+	 * @param index: the position of the first item, starting at 0
+	 * @param count: the most items to return
+	 * @return the items in list order, empty if index is past the end
+	 */
+	public List<ToDoItem> getPage(int index, int count) {
+		List<ToDoItem> page = new ArrayList<>();
+		if (index < 0 || index >= size) {
+			return page;
+		}
+		for (ToDoItem node = get(index); node != null && page.size() < count; node = node.getNext()) {
+			page.add(node);
+		}
+		return page;
+	}
+
+	/**
+	 * Retrieves the page of items that follows the page before. Unlike a position,
+	 * the page before stays good while the list changes: it remembers the stamp
+	 * its last item had when it was served, and the new page starts at the first
+	 * item that sorts after that stamp, found in O(log n) steps. Items
+	 * rescheduled or removed since do not move the place paging continues from.
+	 * 
+	 * @param before: the page before, or null for the first page
+	 * @param count:  the most items to return
+	 * @return the page, empty at the end of the list
+	 */
+	public ListPage getPageAfter(ListPage before, int count) {
+		List<ToDoItem> items = new ArrayList<>();
+		long end = (before == null) ? Long.MIN_VALUE : before.getEnd();
+		ToDoItem node = (before == null) ? head : firstAfter(end);
+		for (; node != null && items.size() < count; node = node.getNext()) {
+			items.add(node);
+		}
+		if (!items.isEmpty()) {
+			end = items.get(items.size() - 1).getStamp();
+		}
+		return new ListPage(items, end);
+	}
+
+	/**
+	 * Walks the skip index to find the first item with a stamp greater than the
+	 * given one. Since stamps are in list order, this is where an item with that
+	 * stamp would have been followed from, whether or not it is still there.
+	 * 
+	 * @param stamp: the stamp to look past
+	 * @return the first item with a greater stamp, or null if there is none
+	 */
+	private ToDoItem firstAfter(long stamp) {
+		ToDoItem node = null;
+		for (int level = levels; level > 0; level--) {
+			ToDoItem next = forward(node, level);
+			while (next != null && next.getStamp() <= stamp) {
+				node = next;
+				next = node.getSkip(level);
+				steps++;
+			}
+		}
+		node = (node == null) ? head : node.getNext();
+		while (node != null && node.getStamp() <= stamp) {
+			node = node.getNext();
+			steps++;
+		}
+		return node;
+	}
+
+	/**
+	 * Starts keeping the width of every index link, building them the first time
+	 * positions are asked for
+	 */
+	private void rank() {
+		if (!ranked) {
+			ranked = true;
+			reindex();
+		}
+	}
+
+	/**
+	 * Retrieves the items due between two dates, including both dates, in list
+	 * order. The first item is found through the skip index and the rest are
+	 * read one at a time as the iterator is used.
+	 * 
+	 * @param startDate: the first due date wanted, as "M/d/yy"
+	 * @param endDate:   the last due date wanted, as "M/d/yy"
+	 * @return an iterator over the items due in the range
+	 */
+	public Iterator<ToDoItem> getRange(String startDate, String endDate) {
+		return getRange(DayClock.parseDay(startDate), DayClock.parseDay(endDate), 0, 9);
+	}
+
+	/**
+	 * Retrieves the items due between two dates with a priority in the given
+	 * range, such as only high (1) priority items
+	 * 
+	 * @param startDate:   the first due date wanted, as "M/d/yy"
+	 * @param endDate:     the last due date wanted, as "M/d/yy"
+	 * @param minPriority: the smallest priority number wanted
+	 * @param maxPriority: the largest priority number wanted
+	 * @return an iterator over the matching items in list order
+	 */
+	public Iterator<ToDoItem> getRange(String startDate, String endDate, int minPriority, int maxPriority) {
+		return getRange(DayClock.parseDay(startDate), DayClock.parseDay(endDate), minPriority, maxPriority);
+	}
+
+	/**
+	 * Retrieves the items due between two day numbers with a priority in the
+	 * given range. Items of each day are sorted by priority, so when a day's items
+	 * fall outside the priorities wanted the iterator jumps to the next day
+	 * through the skip index instead of walking past them. The occurrences of the
+	 * recurring templates in the range are merged in after the stored items with
+	 * the same sort key.
+	 * 
+	 * @param startDay:    the first due day wanted, counted from 1/1/1970
+	 * @param endDay:      the last due day wanted
+	 * @param minPriority: the smallest priority number wanted
+	 * @param maxPriority: the largest priority number wanted
+	 * @return an iterator over the matching items in list order
+	 */
+	public Iterator<ToDoItem> getRange(int startDay, int endDay, int minPriority, int maxPriority) {
+		Iterator<ToDoItem> stored = new RangeIterator(this, startDay, endDay, minPriority, maxPriority);
+		if (recurring.isEmpty()) {
+			return stored;
+		}
+		return new OccurrenceIterator(stored, recurring, startDay, endDay, minPriority, maxPriority);
+	}
+
+	/**
+	 * Removes a specified ToDoList item. If more than one item has the name, the
+	 * one closest to the head is removed.
+	 * 
+	 * @param the name of the ToDoItem to be removed
+	 * @return true if the item is found and removed and false otherwise
+	 */
+	public boolean remove(String name) {
+		long start = measuring ? System.nanoTime() : 0;
+		steps = 0;
+		ToDoItem toDoItem = names.get(name);
+		if (toDoItem != null) {
+			changed(ListChange.REMOVED, toDoItem, null);
+			unlink(toDoItem);
+		}
+		if (measuring) {
+			metrics.recordRemove(steps, System.nanoTime() - start);
+			metrics.recordSize(size);
+		}
+		return toDoItem != null;
+	}
+
+	/**
+	 * Removes every item that matches a filter in one walk down the list. The list
+	 * is relinked as it is walked, and the head, tail, size, skip index, buckets,
+	 * late items and window are all worked out once at the end, so removing many
+	 * items costs the same as removing one. The current pointer moves to the item
+	 * after the last one removed.
+	 * 
+	 * The removed items are returned still linked to each other through getNext
+	 * and getPrev, in the order they were in the list, so they can be kept or
+	 * archived without being copied. If the filter throws an exception, the items
+	 * it matched before that are still removed.
+	 * 
+	 * @param filter: returns true for the items to remove
+	 * @return the first removed item, or null if nothing matched
+	 */
+	public ToDoItem removeIf(Predicate<ToDoItem> filter) {
+		long start = measuring ? System.nanoTime() : 0;
+		steps = 0;
+		refreshLate();
+		ToDoItem node = head; // the next item to test
+		ToDoItem kept = null; // the last item kept
+		ToDoItem first = null; // the first item removed
+		ToDoItem last = null; // the last item removed
+		ToDoItem resume = null; // the first item kept after the last one removed
+		int count = 0;
+		try {
+			while (node != null) {
+				ToDoItem next = node.getNext();
+				steps++;
+				if (filter.test(node)) {
+					if (changes != null) { // the item is between the last item kept and the next one
+						changes.record(ListChange.REMOVED, node, kept, next, null);
+					}
+					if (last == null) {
+						first = node;
+					} else {
+						last.setNext(node);
+					}
+					node.setPrev(last);
+					last = node;
+					resume = null;
+					count++;
+				} else {
+					if (kept == null) {
+						head = node;
+					} else {
+						kept.setNext(node);
+					}
+					node.setPrev(kept);
+					if (last != null && resume == null) {
+						resume = node;
+					}
+					kept = node;
+				}
+				node = next;
+			}
+		} finally {
+			// the items from node on were not tested and stay where they are
+			if (kept == null) {
+				head = node;
+			} else {
+				kept.setNext(node);
+			}
+			if (node == null) {
+				tail = kept;
+			} else {
+				node.setPrev(kept);
+			}
+			if (count > 0) {
+				last.setNext(null);
+				if (resume == null) {
+					resume = (node == null) ? kept : node;
+				}
+				current = resume;
+				size -= count;
+				detach(first);
+			}
+			if (measuring) {
+				metrics.recordRemoveAll(count, steps, System.nanoTime() - start);
+				metrics.recordSize(size);
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Removes every item that is marked as done in one walk down the list
+	 * 
+	 * @return the first removed item, linked to the rest in list order, or null if
+	 *         no item was done
+	 */
+	public ToDoItem purgeCompleted() {
+		return removeIf(ToDoItem::getIsDone);
+	}
+
+	/**
+	 * Takes a chain of items that were already unlinked by removeIf out of the
+	 * name index, and rebuilds the skip index, buckets, late items and window for
+	 * the items left. Each name's chain is walked once however many of its items
+	 * were removed.
+	 * 
+	 * @param first: the first removed item, linked to the others through getNext
+	 */
+	private void detach(ToDoItem first) {
+		for (ToDoItem node = first; node != null; node = node.getNext()) {
+			node.setList(null); // marks the item as removed
+			node.setLevels(0);
+		}
+		HashSet<String> done = new HashSet<>();
+		for (ToDoItem node = first; node != null; node = node.getNext()) {
+			if (!done.add(node.getName())) {
+				continue;
+			}
+			ToDoItem keptFirst = null;
+			ToDoItem keptLast = null;
+			ToDoItem sameName = names.get(node.getName());
+			while (sameName != null) {
+				ToDoItem following = sameName.getSameName();
+				if (sameName.getList() == this) {
+					if (keptLast == null) {
+						keptFirst = sameName;
+					} else {
+						keptLast.setSameName(sameName);
+					}
+					keptLast = sameName;
+				} else {
+					sameName.setSameName(null);
+				}
+				sameName = following;
+			}
+			if (keptLast == null) {
+				names.remove(node.getName());
+			} else {
+				keptLast.setSameName(null);
+				names.put(node.getName(), keptFirst);
+			}
+		}
+		reindex();
+		resetBuckets();
+		resetLate();
+		resetWindow();
+		snapshotStale = true;
+		text = null;
+	}
+
+	/**
+	 * Searches the names and notes of the items for words. Every word in the query
+	 * must be in an item for it to match, and a word ending in '*' matches any word
+	 * that starts with it. Case and punctuation are ignored.
+	 * 
+	 * The first search builds a word index over the list, which is then kept up to
+	 * date as items are inserted, removed, renamed or given new notes, so later
+	 * searches never walk the list. Bulk changes such as insertAll and removeIf
+	 * drop the index, and the next search builds it again.
+	 * 
+	 * @param query: the words to search for, separated by spaces
+	 * @return the matching items in due date order
+	 */
+	public List<ToDoItem> search(String query) {
+		if (text == null) {
+			text = new TextIndex();
+			for (ToDoItem node = head; node != null; node = node.getNext()) {
+				text.add(node);
+			}
+		}
+		return text.search(query);
+	}
+
+	/**
+	 * Adds an item to the name index. Items that share a name are chained in list
+	 * order, which is the order of their stamps, so a renamed item also lands in
+	 * the right place among same-named items with an equal sort key.
+	 * 
+	 * @param toDoItem: the item in the list, with its stamp set
+	 */
+	private void addName(ToDoItem toDoItem) {
+		toDoItem.setList(this);
+		ToDoItem first = names.get(toDoItem.getName());
+		if (first == null || first.getStamp() > toDoItem.getStamp()) {
+			toDoItem.setSameName(first);
+			names.put(toDoItem.getName(), toDoItem);
+			return;
+		}
+		ToDoItem before = first;
+		while (before.getSameName() != null && before.getSameName().getStamp() < toDoItem.getStamp()) {
+			before = before.getSameName();
+		}
+		toDoItem.setSameName(before.getSameName());
+		before.setSameName(toDoItem);
+	}
+
+	/**
+	 * Takes an item out of the name index
+	 * 
+	 * @param toDoItem: the item being removed or renamed
+	 * @param name:     the name the item is indexed under
+	 */
+	private void removeName(ToDoItem toDoItem, String name) {
+		ToDoItem first = names.get(name);
+		if (first == toDoItem) {
+			if (toDoItem.getSameName() == null) {
+				names.remove(name);
+			} else {
+				names.put(name, toDoItem.getSameName());
+			}
+		} else {
+			ToDoItem before = first;
+			while (before.getSameName() != toDoItem) {
+				before = before.getSameName();
+			}
+			before.setSameName(toDoItem.getSameName());
+		}
+		toDoItem.setSameName(null);
+		toDoItem.setList(null);
+	}
+
+	/**
+	 * Moves an item in the name index after ToDoItem.setName changes its name
+	 * 
+	 * @param toDoItem: the renamed item in this list
+	 * @param oldName:  the name the item had before
+	 */
+	void nameChanged(ToDoItem toDoItem, String oldName) {
+		if (inWindow(toDoItem)) {
+			windowVersion++;
+		}
+		removeName(toDoItem, oldName);
+		addName(toDoItem);
+		if (text != null) {
+			text.remove(toDoItem, oldName);
+			text.add(toDoItem);
+		}
+		changed(ListChange.CHANGED, toDoItem, "name");
+	}
+
+	/**
+	 * Updates the text index and window version after ToDoItem.setNotes changes
+	 * an item's notes
+	 * 
+	 * @param toDoItem: the changed item in this list
+	 * @param oldNotes: the notes the item had before
+	 */
+	void notesChanged(ToDoItem toDoItem, String oldNotes) {
+		if (inWindow(toDoItem)) {
+			windowVersion++;
+		}
+		if (text != null) {
+			text.remove(toDoItem, oldNotes);
+			text.add(toDoItem);
+		}
+		changed(ListChange.CHANGED, toDoItem, "notes");
+	}
+
+	/**
+	 * Records that ToDoItem.setIsDone changed an item and updates the window
+	 * version if the item is in the window
+	 * 
+	 * @param toDoItem: the changed item in this list
+	 */
+	void doneChanged(ToDoItem toDoItem) {
+		if (inWindow(toDoItem)) {
+			windowVersion++;
+		}
+		changed(ListChange.CHANGED, toDoItem, "isDone");
+	}
+
+	/**
+	 * Takes an item out of the list and the skip index and joins its neighbors
+	 * together. The current pointer moves to the item that followed it.
+	 * 
+	 * @param toDoItem: the item in this list to be removed
+	 */
+	private void unlink(ToDoItem toDoItem) {
+		ToDoItem before = toDoItem.getPrev();
+		ToDoItem after = toDoItem.getNext();
+		refreshLate();
+		windowRemoved(toDoItem);
+		if (toDoItem == lateBoundary) {
+			lateBoundary = after;
+		} else if (toDoItem.getSortKey() < (lateDay + 1) * 10) {
+			lateCount--;
+		}
+		unindex(toDoItem);
+		clearBucket(toDoItem);
+		snapshotRemoved(toDoItem);
+		if (text != null) {
+			text.remove(toDoItem);
+		}
+		removeName(toDoItem, toDoItem.getName());
+		if (before == null) { // the head is removed
+			head = after;
+		} else {
+			before.setNext(after);
+		}
+		if (after == null) { // the tail is removed
+			tail = before;
+		} else {
+			after.setPrev(before);
+		}
+		toDoItem.setNext(null);
+		toDoItem.setPrev(null);
+		current = (after == null) ? before : after;
+		size--;
+		shrinkBuckets();
+	}
+
+	/**
+	 * Retrieves an iterator over the items from head to tail
+	 * 
+	 * @return an iterator over the list in sorted order
+	 */
+	@Override
+	public Iterator<ToDoItem> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	/**
+	 * Retrieves a spliterator over the items from head to tail. It reports the list
+	 * as ordered, sorted and sized, and splits through the skip index without
+	 * copying the items.
+	 * 
+	 * @return a spliterator over the list
+	 */
+	@Override
+	public Spliterator<ToDoItem> spliterator() {
+		return new ItemSpliterator(this, head, null, tail, size);
+	}
+
+	/**
+	 * Retrieves a sequential stream of the items from head to tail
+	 * 
+	 * @return a stream over the list
+	 */
+	public Stream<ToDoItem> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Retrieves a parallel stream of the items, whose parts are read on several
+	 * threads. The list must not be changed while the stream runs.
+	 * 
+	 * @return a parallel stream over the list
+	 */
+	public Stream<ToDoItem> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
 	}
 
 	/**
@@ -274,13 +1902,34 @@ public class SortedList {
 	}
 
 	/**
-	 * Clears the to-do list and resets its variables
+	 * Clears the to-do list and resets its variables. Only the items are removed;
+	 * the recurring templates are kept, so use removeRecurring to drop them.
 	 */
 	public void clear() {
+		if (changes != null && head != null) {
+			changes.record(ListChange.CLEARED, null, null, null, null);
+		}
+		// detaches every item so renaming one no longer reaches this list
+		for (ToDoItem toDoItem = head; toDoItem != null; toDoItem = toDoItem.getNext()) {
+			toDoItem.setSameName(null);
+			toDoItem.setList(null);
+		}
+		names.clear();
+		windowCount = 0;
+		windowEnd = null;
+		windowVersion++;
+		lateBoundary = null;
+		lateCount = 0;
 		head = null;
 		current = null;
 		tail = null;
 		size = 0;
+		indexHead = new ToDoItem[MAX_LEVEL + 1];
+		levels = 0;
+		buckets = new ToDoItem[0];
+		bucketsPartial = false;
+		snapshotStale = true;
+		text = null;
 	}
 
 }
@@ -1,5 +1,25 @@
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Class that tests that ToDoItems and SortedLists are created correctly and that all functions
@@ -302,4 +322,1483 @@ class Tests {
 			fail("Year");
 		}
 	}
+
+	/**
+	 * Tests that a large list with mixed dates stays sorted, keeps same day and
+	 * priority items in the order they were entered, and stays linked correctly
+	 * in both directions after items are removed
+	 */
+	@Test
+	void testLargeInsertOrder() {
+		SortedList list = new SortedList("List");
+		Random random = new Random(21);
+		int count = 5000;
+		for (int i = 0; i < count; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/2" + random.nextInt(2);
+			list.insert(new ToDoItem("Item " + i, date, random.nextInt(3) + 1, "Body text " + i));
+		}
+		checkOrder(list, count);
+
+		for (int i = 0; i < count; i += 2) {
+			if (!list.remove("Item " + i)) {
+				fail("Failed to remove \"Item " + i + "\"");
+			}
+		}
+		checkOrder(list, count / 2);
+	}
+
+	/**
+	 * Walks a list from head to tail checking that it is sorted, that ties keep the
+	 * order items were numbered in, and that the prev links and size match
+	 * 
+	 * @param list: the list to check
+	 * @param size: the number of items the list should hold
+	 */
+	private void checkOrder(SortedList list, int size) {
+		ToDoItem tempHead = list.getHead();
+		ToDoItem last = null;
+		int seen = 0;
+		while (tempHead != null) {
+			if (tempHead.getPrev() != last) {
+				fail("Prev link broken at " + tempHead.getName());
+			}
+			if (last != null) {
+				if (last.compareItems(tempHead) == 1) {
+					fail("List out of order at " + tempHead.getName());
+				}
+				if (last.compareItems(tempHead) == 0 && itemNumber(last) > itemNumber(tempHead)) {
+					fail("Tie order broken at " + tempHead.getName());
+				}
+			}
+			last = tempHead;
+			tempHead = tempHead.getNext();
+			seen++;
+		}
+		if (seen != size || list.getSize() != size || list.getTail() != last) {
+			fail("Size or tail incorrect after walking the list");
+		}
+	}
+
+	/**
+	 * Gets the number from an item named "Item n"
+	 */
+	private int itemNumber(ToDoItem item) {
+		return Integer.parseInt(item.getName().substring(5));
+	}
+
+	/**
+	 * Tests that lookups by name find the item closest to the head when names are
+	 * shared, and that renaming and removing items keeps the name lookups correct
+	 */
+	@Test
+	void testDuplicateNames() {
+		SortedList list = new SortedList("List");
+		ToDoItem later = new ToDoItem("Dup", "3/1/21", 2, "Body text 1");
+		ToDoItem earlier = new ToDoItem("Dup", "2/1/21", 2, "Body text 2");
+		list.insert(later);
+		list.insert(toDoItem1);
+		list.insert(earlier);
+
+		if (list.get("Dup") != earlier) {
+			fail("Lookup should find the earlier \"Dup\"");
+		}
+		list.remove("Dup");
+		if (list.get("Dup") != later || list.getSize() != 2) {
+			fail("Removing \"Dup\" should remove the earlier item only");
+		}
+
+		later.setName("Renamed");
+		if (list.contains("Dup") || list.get("Renamed") != later) {
+			fail("Renaming an item did not update the lookups");
+		}
+		earlier.setName("Renamed"); // no longer in the list
+		if (list.get("Renamed") != later) {
+			fail("Renaming a removed item changed the list");
+		}
+
+		// a renamed item is chained by its place in the list, even on a tied date
+		ToDoItem q = new ToDoItem("Q", "4/1/21", 2, null);
+		ToDoItem p = new ToDoItem("P", "4/1/21", 2, null);
+		list.insert(q);
+		list.insert(p);
+		q.setName("P");
+		if (list.get("P") != q) {
+			fail("Lookup after a rename should find the first \"P\" in the list");
+		}
+
+		list.clear();
+		if (list.contains("Renamed") || list.contains("Item 1")) {
+			fail("Clear left names behind");
+		}
+	}
+
+	/**
+	 * Tests that the sort key read from the date orders items the same way as the
+	 * yyMMddp sort number and converts back to it
+	 */
+	@Test
+	void testSortKey() {
+		if (toDoItem1.getSortNum() != 2102061 || toDoItem1.findSortNum("12/26/20") != 2012261) {
+			fail("Sort number formatted incorrectly");
+		}
+		ToDoItem leapDay = new ToDoItem("Item 7", "2/29/24", 3, "Body text 7");
+		ToDoItem yearEnd = new ToDoItem("Item 8", "12/31/23", 1, "Body text 8");
+		if (leapDay.getSortNum() != 2402293 || yearEnd.compareItems(leapDay) != -1) {
+			fail("Sort key incorrect across a year and leap day");
+		}
+		// walks every day for several years checking the day numbers go up by one
+		for (int day = DayClock.epochDay(2019, 1, 1); day < DayClock.epochDay(2026, 1, 1); day++) {
+			int date = DayClock.yyMMdd(day);
+			String text = (date / 100 % 100) + "/" + (date % 100) + "/" + (date / 10000);
+			if (DayClock.parseDay(text) != day || DayClock.yyMMdd(day + 1) <= date) {
+				fail("Day number conversion incorrect for " + text);
+			}
+		}
+		// dates before 1970 split into day and priority the same way
+		ToDoItem old = new ToDoItem("Item 9", "12/31/1969", 1, "Body text 9");
+		if (old.getSortNum() != 6912311 || old.compareItems(yearEnd) != -1) {
+			fail("Sort number incorrect before 1970");
+		}
+		for (String date : new String[] { "2/30/21", "2/29/23", "4/31/21", "13/1/21", "0/1/21", "1/0/21" }) {
+			try {
+				DayClock.parseDay(date);
+				fail("Date that does not exist was accepted: " + date);
+			} catch (NumberFormatException e) {
+			}
+		}
+		// formatted dates read back as the same day in any century
+		for (String date : new String[] { "3/4/05", "12/31/99", "12/31/1999", "1/1/1900", "2/29/2400", "1/1/9999" }) {
+			int day = DayClock.parseDay(date);
+			if (DayClock.parseDay(DayClock.formatDay(day)) != day) {
+				fail("Formatted date read back incorrectly: " + date + " as " + DayClock.formatDay(day));
+			}
+		}
+		if (!DayClock.formatDay(DayClock.epochDay(1999, 12, 31)).equals("12/31/1999")
+				|| !DayClock.formatDay(DayClock.epochDay(2005, 3, 4)).equals("3/4/05")) {
+			fail("Date formatted incorrectly");
+		}
+	}
+
+	/**
+	 * Tests that a group of items inserted at once is merged into the list in the
+	 * same order as inserting them one at a time, and that the list still works
+	 * for single inserts and removals afterwards
+	 */
+	@Test
+	void testInsertAll() {
+		SortedList list = new SortedList("List");
+		Random random = new Random(4);
+		ArrayList<ToDoItem> batch = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			ToDoItem item = new ToDoItem("Item " + i, (random.nextInt(3) + 1) + "/" + (random.nextInt(5) + 1) + "/21",
+					random.nextInt(3) + 1, "Body text " + i);
+			if (i < 1000) {
+				list.insert(item);
+			} else {
+				batch.add(item);
+			}
+		}
+		list.insertAll(batch);
+		checkOrder(list, 3000);
+		if (list.get("Item 2999") != batch.get(1999) || list.getCurrent() == null) {
+			fail("Batch items not found after the merge");
+		}
+
+		list.insert(new ToDoItem("Item 3000", "3/5/21", 3, "Body text 3000"));
+		for (int i = 0; i < 3000; i += 3) {
+			list.remove("Item " + i);
+		}
+		checkOrder(list, 2001);
+
+		SortedList loaded = new SortedList("Loaded");
+		ToDoItem[] sorted = { toDoItem1, toDoItem2, toDoItem3 };
+		if (!loaded.loadSorted(sorted, 3) || loaded.getTail() != toDoItem3 || loaded.loadSorted(sorted, 3)) {
+			fail("Loading a sorted group into an empty list failed");
+		}
+	}
+
+	/**
+	 * Tests that several threads can insert into and remove from the concurrent
+	 * list at the same time and leave it sorted with the right size
+	 */
+	@Test
+	void testConcurrentList() throws InterruptedException {
+		ConcurrentSortedList list = new ConcurrentSortedList("List");
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			int offset = t;
+			threads[t] = new Thread(() -> {
+				Random random = new Random(offset);
+				for (int i = offset; i < 8000; i += threads.length) {
+					list.insert(new ToDoItem("Item " + i, (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/21",
+							random.nextInt(3) + 1, "Body text " + i));
+					if (i % 8 == offset) { // each thread removes half of its own items
+						list.remove("Item " + i);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		int count = 0;
+		ToDoItem last = null;
+		for (ToDoItem item : list) {
+			if (last != null && last.compareItems(item) == 1) {
+				fail("Concurrent list out of order at " + item.getName());
+			}
+			last = item;
+			count++;
+		}
+		if (count != 4000 || list.getSize() != 4000 || list.contains("Item 0") || !list.contains("Item 4")) {
+			fail("Concurrent list has the wrong items");
+		}
+	}
+
+	/**
+	 * Tests that range queries return exactly the items due in the range with the
+	 * wanted priorities, in list order
+	 */
+	@Test
+	void testGetRange() {
+		SortedList list = new SortedList("List");
+		list.insert(toDoItem1);
+		list.insert(toDoItem2);
+		list.insert(toDoItem3);
+		list.insert(toDoItem4);
+		list.insert(toDoItem5);
+		list.insert(toDoItem6);
+		list.insert(new ToDoItem("Item 7", "2/21/21", 1, "Body text 7"));
+		list.insert(new ToDoItem("Item 8", "2/21/21", 3, "Body text 8"));
+
+		if (!rangeNames(list.getRange("2/7/21", "3/26/21")).equals("|Item 2|Item 7|Item 3|Item 8|Item 4|")) {
+			fail("Date range returned the wrong items");
+		}
+		if (!rangeNames(list.getRange("1/1/21", "4/8/21", 2, 2)).equals("|Item 2|Item 3|Item 4|")) {
+			fail("Priority range returned the wrong items");
+		}
+		if (!rangeNames(list.getRange("4/17/21", "5/1/21")).equals("|")) {
+			fail("Empty range returned items");
+		}
+	}
+
+	/**
+	 * Joins the names of the items from a range query
+	 */
+	private String rangeNames(Iterator<ToDoItem> range) {
+		String names = "|";
+		while (range.hasNext()) {
+			names += range.next().getName() + "|";
+		}
+		return names;
+	}
+
+	/**
+	 * Tests that the late items are tracked at the front of the list and that only
+	 * the items that became late are marked when the day changes
+	 */
+	@Test
+	void testLateBoundary() {
+		long[] now = { noon(2021, 2, 9) };
+		DayClock clock = testClock(now);
+		SortedList list = new SortedList("List");
+		list.setClock(clock);
+		list.insert(toDoItem3);
+		list.insert(toDoItem1);
+		list.insert(toDoItem5);
+		list.insert(toDoItem2);
+
+		if (list.getLateCount() != 2 || !toDoItem2.getIsLate() || toDoItem3.getIsLate()) {
+			fail("Late items marked incorrectly on 2/9/21");
+		}
+
+		now[0] += 20 * 86400000L; // 3/1/21
+		if (!toDoItem3.getIsLate() || list.getLateCount() != 3 || toDoItem5.getIsLate()) {
+			fail("Late items not updated when the day changed");
+		}
+		list.insert(toDoItem4);
+		list.remove("Item 1");
+		if (!rangeNames(list.getOverdue()).equals("|Item 2|Item 3|") || list.getLateCount() != 2) {
+			fail("Overdue items incorrect after inserting and removing");
+		}
+	}
+
+	/**
+	 * Tests that reminders are sent once as items come due, and only if watched
+	 */
+	@Test
+	void testReminders() {
+		long[] now = { noon(2021, 3, 1) };
+		List<String> sent = new ArrayList<>();
+		ReminderScheduler scheduler = new ReminderScheduler(testClock(now), 1000, 86400000L,
+				new ReminderScheduler.Listener() {
+					@Override
+					public void due(ToDoItem toDoItem) {
+						sent.add("due " + toDoItem.getName());
+					}
+
+					@Override
+					public void late(ToDoItem toDoItem) {
+						sent.add("late " + toDoItem.getName());
+					}
+				});
+		SortedList list = new SortedList("List");
+		list.insert(new ToDoItem("Today", "3/1/21", 1, null));
+		list.insert(new ToDoItem("Tomorrow 1", "3/2/21", 1, null));
+		list.insert(new ToDoItem("Tomorrow 2", "3/2/21", 3, null));
+		list.insert(new ToDoItem("Wednesday", "3/3/21", 2, null));
+		list.insert(new ToDoItem("Next week", "3/10/21", 2, null));
+		list.insert(new ToDoItem("Next month", "4/30/21", 2, null));
+		scheduler.watch(list);
+		if (scheduler.advance() != 0) {
+			fail("Reminders sent for items already due");
+		}
+
+		now[0] = noon(2021, 3, 2);
+		scheduler.advance();
+		if (!sent.equals(List.of("due Wednesday", "late Tomorrow 1", "late Tomorrow 2"))
+				&& !sent.equals(List.of("late Tomorrow 1", "late Tomorrow 2", "due Wednesday"))) {
+			fail("Wrong reminders on 3/2: " + sent);
+		}
+
+		// items placed ahead of the armed ones move the timers up
+		sent.clear();
+		list.insert(new ToDoItem("Friday", "3/5/21", 1, null));
+		list.get("Next month").setDueDate("3/6/21");
+		list.remove("Next week");
+		now[0] = noon(2021, 3, 4);
+		scheduler.advance();
+		if (!sent.containsAll(List.of("late Wednesday", "due Friday")) || sent.size() != 2) {
+			fail("Wrong reminders on 3/4: " + sent);
+		}
+		sent.clear();
+		now[0] = noon(2021, 3, 20);
+		scheduler.advance();
+		if (!sent.containsAll(List.of("due Next month", "late Friday", "late Next month")) || sent.size() != 3) {
+			fail("Wrong reminders on 3/20: " + sent);
+		}
+
+		// each reminder is sent once, and an unwatched list sends none
+		sent.clear();
+		list.insert(new ToDoItem("Later", "6/1/21", 1, null));
+		scheduler.advance();
+		scheduler.unwatch(list);
+		now[0] = noon(2021, 7, 1);
+		if (scheduler.advance() != 0 || !sent.isEmpty()) {
+			fail("Reminders sent again or after unwatch: " + sent);
+		}
+
+		// a reminder due on the tick a higher wheel turns is sent on that tick
+		long midnight = DayClock.epochDay(2021, 3, 3) * 86400000L;
+		midnight -= TimeZone.getDefault().getOffset(midnight);
+		long lead = 86400000L + Math.floorMod(midnight, 64000L); // sent on a tick that is a multiple of 64
+		now[0] = noon(2021, 3, 1);
+		ReminderScheduler aligned = new ReminderScheduler(testClock(now), 1000, lead,
+				new ReminderScheduler.Listener() {
+					@Override
+					public void due(ToDoItem toDoItem) {
+						sent.add("due " + toDoItem.getName());
+					}
+				});
+		SortedList wednesday = new SortedList("Wednesday");
+		wednesday.insert(new ToDoItem("Wednesday", "3/3/21", 1, null));
+		aligned.watch(wednesday);
+		now[0] = midnight - lead;
+		if (aligned.advance() != 1 || !sent.equals(List.of("due Wednesday"))) {
+			fail("Reminder sent after its tick: " + sent);
+		}
+	}
+
+	/**
+	 * Creates a clock that reads its time from now[0] so tests can move the day
+	 */
+	private DayClock testClock(long[] now) {
+		return new DayClock() {
+			@Override
+			protected long millis() {
+				return now[0];
+			}
+		};
+	}
+
+	/**
+	 * Gets the time of noon on a date in the local time zone
+	 */
+	private long noon(int year, int month, int day) {
+		long midnight = DayClock.epochDay(year, month, day) * 86400000L;
+		return midnight + 43200000L - TimeZone.getDefault().getOffset(midnight);
+	}
+
+	/**
+	 * Tests that the columnar export keeps the same order as the linked list, gives
+	 * back each item's values and finds items by name
+	 */
+	@Test
+	void testColumnarList() {
+		SortedList list = new SortedList("List");
+		Random random = new Random(9);
+		ArrayList<ToDoItem> batch = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			ToDoItem item = new ToDoItem("Item " + i, (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/21",
+					random.nextInt(3) + 1, "Body text " + i);
+			item.setIsDone(i % 5 == 0);
+			if (i < 1000) {
+				list.insert(item);
+			} else {
+				batch.add(item);
+			}
+		}
+		for (int i = 0; i < 1000; i += 4) {
+			list.remove("Item " + i);
+		}
+		ColumnarSortedList columns = ColumnarSortedList.from(list);
+		columns.insertAll(batch);
+		list.insertAll(batch);
+		columns.append(new ToDoItem("Item 1", "1/1/22", 1, null)); // a second "Item 1", after the first
+		list.insert(new ToDoItem("Item 1", "1/1/22", 1, null));
+
+		checkColumns(list, columns);
+		if (columns.indexOf("Item 3") < 0 || columns.contains("Item 4")
+				|| !columns.getItem(columns.indexOf("Item 1")).getDueDate().endsWith("/21")) {
+			fail("Columnar list has the wrong items");
+		}
+		int start = columns.rangeStart(DayClock.parseDay("3/1/21"));
+		if (start > 0 && columns.getSortKey(start - 1) >= DayClock.parseDay("3/1/21") * 10) {
+			fail("Range start found the wrong position");
+		}
+		try {
+			columns.append(new ToDoItem("Early", "1/1/21", 1, null));
+			fail("Appending an item out of order was accepted");
+		} catch (IllegalArgumentException e) {
+		}
+
+		// single inserts and removes shift the columns the same way the list changes
+		for (int i = 0; i < 3000; i++) {
+			String name = "Item " + random.nextInt(2500);
+			if (random.nextInt(3) == 0) {
+				if (list.remove(name) != columns.remove(name)) {
+					fail("Columnar list removed differently for " + name);
+				}
+			} else {
+				ToDoItem item = new ToDoItem(name, (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/21",
+						random.nextInt(3) + 1, (i % 7 == 0) ? null : "New text " + i);
+				columns.insert(item);
+				list.insert(item);
+			}
+		}
+		checkColumns(list, columns);
+		// removing most items packs the text of the rest again
+		for (int i = 0; i < 2500; i++) {
+			while (i % 4 != 0 && columns.remove("Item " + i)) {
+				list.remove("Item " + i);
+			}
+		}
+		checkColumns(list, columns);
+
+		// lateness is read from the list's clock
+		long[] now = { noon(2021, 6, 15) };
+		list.setClock(testClock(now));
+		columns = ColumnarSortedList.from(list);
+		int index = 0;
+		for (ToDoItem item = list.getHead(); item != null; item = item.getNext()) {
+			if (columns.getIsLate(index++) != item.getIsLate()) {
+				fail("Columnar list did not use the list's clock at " + item.getName());
+			}
+		}
+		if (!columns.getIsLate(0) || columns.getIsLate(columns.getSize() - 1)) {
+			fail("Columnar list did not use the list's clock");
+		}
+	}
+
+	/**
+	 * Checks that a columnar list holds the same items as a list, in the same
+	 * order, and finds the same item by each name
+	 */
+	private void checkColumns(SortedList list, ColumnarSortedList columns) {
+		int index = 0;
+		for (ToDoItem item = list.getHead(); item != null; item = item.getNext()) {
+			ToDoItem copy = columns.getItem(index);
+			if (!copy.getAllInfo().equals(item.getAllInfo()) || copy.getSortKey() != item.getSortKey()
+					|| columns.getIsLate(index) != item.getIsLate()) {
+				fail("Columnar list differs at " + item.getName());
+			}
+			// both find the item with a name that is closest to the head
+			if ((list.get(item.getName()) == item) != (columns.indexOf(item.getName()) == index)) {
+				fail("Name lookup found the wrong item for " + item.getName());
+			}
+			index++;
+		}
+		if (index != columns.getSize()) {
+			fail("Columnar list has the wrong size");
+		}
+	}
+
+	/**
+	 * Tests that a stored list comes back the same from its snapshot and journal,
+	 * that a record cut short at the end of the journal is dropped, and that a
+	 * journal left behind by a checkpoint is not replayed again
+	 */
+	@Test
+	void testListStore(@TempDir Path directory) throws IOException {
+		try (ListStore store = ListStore.open(directory, "List")) {
+			store.insert(toDoItem4);
+			store.insert(toDoItem1);
+			store.insert(toDoItem5);
+			store.checkpoint();
+			store.insert(toDoItem2);
+			store.remove("Item 5");
+			store.setName("Item 4", "Item 4b");
+			store.setNotes("Item 1", "New notes");
+			store.setIsDone("Item 2", true);
+			// an insert that fails must not leave a record behind to be replayed
+			try {
+				store.insert(null);
+				fail("Insert of no item did not fail");
+			} catch (NullPointerException e) {
+			}
+		}
+
+		Path journal = directory.resolve("List.journal");
+		long goodLength = Files.size(journal);
+		Files.write(journal, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+
+		try (ListStore store = ListStore.open(directory, "List")) {
+			SortedList list = store.getList();
+			ToDoItem tempHead = list.getHead();
+			String currList = "|";
+			while (tempHead != null) {
+				currList += tempHead.getName() + "|";
+				tempHead = tempHead.getNext();
+			}
+			if (!currList.equals("|Item 1|Item 2|Item 4b|")) {
+				fail("Stored list read back incorrectly: " + currList);
+			}
+			if (!list.get("Item 1").getNotes().equals("New notes") || !list.get("Item 2").getIsDone()) {
+				fail("Field changes were not replayed");
+			}
+			if (Files.size(journal) != goodLength) {
+				fail("Partly written journal record was not dropped");
+			}
+		}
+
+		// a crash after the new snapshot is in place but before the journal is emptied
+		byte[] oldJournal = Files.readAllBytes(journal);
+		try (ListStore store = ListStore.open(directory, "List")) {
+			store.checkpoint();
+		}
+		Files.write(journal, oldJournal);
+		try (ListStore store = ListStore.open(directory, "List")) {
+			if (store.getList().getSize() != 3) {
+				fail("Journal replayed on top of the snapshot that already held it");
+			}
+			store.insert(new ToDoItem("Item 6", "3/1/21", 1, null));
+			store.reschedule("Item 6", "1/1/20", 2);
+			// the second "Dup" is removed, which removing by name would not find
+			store.insert(new ToDoItem("Dup", "4/1/21", 1, null));
+			store.insert(new ToDoItem("Dup", "5/1/21", 1, null));
+			store.setIsDone("Item 1", true);
+			if (store.removeIf(item -> item.getName().equals("Dup") && item.getDueDate().equals("5/1/21")) == null
+					|| store.purgeCompleted() == null) {
+				fail("Store did not remove the matching items");
+			}
+		}
+		try (ListStore store = ListStore.open(directory, "List")) {
+			if (store.getList().getSize() != 3 || !store.getList().getHead().getName().equals("Item 6")
+					|| !store.getList().getHead().getDueDate().equals("1/1/20")) {
+				fail("Journal of the new generation was not replayed");
+			}
+			if (store.getList().contains("Item 1") || !store.getList().get("Dup").getDueDate().equals("4/1/21")) {
+				fail("Bulk removals were not replayed");
+			}
+		}
+	}
+
+	/**
+	 * Tests that lists in the registry can be filled from several threads and that
+	 * the agenda merges them in due date order
+	 */
+	@Test
+	void testListRegistry() throws InterruptedException {
+		ListRegistry registry = new ListRegistry(4);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			String listName = "List " + t;
+			int offset = t;
+			threads[t] = new Thread(() -> {
+				Random random = new Random(offset);
+				for (int i = 0; i < 500; i++) {
+					registry.insert(listName, new ToDoItem(listName + " Item " + i,
+							(random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/21", random.nextInt(3) + 1, ""));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		int count = 0;
+		ToDoItem last = null;
+		Iterator<ToDoItem> agenda = registry.agenda();
+		while (agenda.hasNext()) {
+			ToDoItem item = agenda.next();
+			if (last != null && last.compareItems(item) == 1) {
+				fail("Agenda out of order at " + item.getName());
+			}
+			last = item;
+			count++;
+		}
+		if (count != 4000 || registry.agendaPage(10).size() != 10) {
+			fail("Agenda has the wrong number of items");
+		}
+		ArrayList<String> two = new ArrayList<>();
+		two.add("List 0");
+		two.add("List 1");
+		if (rangeNames(registry.agenda(two)).split("\\|").length != 1001) {
+			fail("Agenda of selected lists has the wrong items");
+		}
+	}
+
+	/**
+	 * Tests that sequential and parallel streams over the list see every item once
+	 * and keep the list's order, and that a list with most items on one day still
+	 * splits near its middle
+	 */
+	@Test
+	void testStreams() {
+		SortedList list = new SortedList("List");
+		Random random = new Random(12);
+		for (int i = 0; i < 20000; i++) {
+			list.insert(new ToDoItem("Item " + i, (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/2"
+					+ random.nextInt(3), random.nextInt(3) + 1, ""));
+		}
+
+		List<ToDoItem> walked = new ArrayList<>();
+		for (ToDoItem item : list) {
+			walked.add(item);
+		}
+		if (!list.stream().collect(Collectors.toList()).equals(walked)
+				|| !list.parallelStream().collect(Collectors.toList()).equals(walked)) {
+			fail("Streams do not match the list order");
+		}
+		long high = list.stream().filter(item -> item.getPriority() == 1).count();
+		if (list.parallelStream().filter(item -> item.getPriority() == 1).count() != high
+				|| list.spliterator().getExactSizeIfKnown() != 20000) {
+			fail("Parallel stream counted the wrong items");
+		}
+
+		SortedList skewed = new SortedList("Skewed");
+		for (int i = 0; i < 4000; i++) {
+			skewed.insert(new ToDoItem("Item " + i, (i < 3900) ? "1/1/21" : "12/" + (i % 28 + 1) + "/21", 1, ""));
+		}
+		Spliterator<ToDoItem> rest = skewed.spliterator();
+		Spliterator<ToDoItem> prefix = rest.trySplit();
+		long[] counts = new long[2];
+		prefix.forEachRemaining(item -> counts[0]++);
+		rest.forEachRemaining(item -> counts[1]++);
+		if (counts[0] + counts[1] != 4000 || counts[0] < 1000 || counts[1] < 1000) {
+			fail("Skewed list split unevenly: " + counts[0] + " and " + counts[1]);
+		}
+	}
+
+	/**
+	 * Tests that changing an item's due date or priority moves it to its new place
+	 * in the list
+	 */
+	@Test
+	void testReschedule() {
+		SortedList list = new SortedList("List");
+		list.insert(toDoItem1);
+		list.insert(toDoItem2);
+		list.insert(toDoItem3);
+		list.insert(toDoItem4);
+
+		toDoItem1.setDueDate("3/1/21"); // moves from the head to between Item 3 and Item 4
+		toDoItem4.setPriority(1); // stays in place
+		list.reschedule(toDoItem3, "2/8/21", 1); // moves ahead of Item 2 on the same day
+		ToDoItem tempHead = list.getHead();
+		String currList = "|";
+		while (tempHead != null) {
+			currList += tempHead.getName() + "|";
+			tempHead = tempHead.getNext();
+		}
+		if (!currList.equals("|Item 3|Item 2|Item 1|Item 4|")) {
+			fail("Rescheduled items in the wrong order: " + currList);
+		}
+		if (toDoItem1.getSortNum() != 2103011 || toDoItem4.getSortNum() != 2103261 || list.get("Item 1") != toDoItem1) {
+			fail("Rescheduled item values incorrect");
+		}
+		checkOrder(list, 4);
+	}
+
+	/**
+	 * Tests that a list reports its operations to its metrics
+	 */
+	@Test
+	void testMetrics() {
+		SortedList list = new SortedList("List");
+		ListStats stats = new ListStats();
+		list.setMetrics(stats);
+		for (int i = 0; i < 1000; i++) {
+			list.insert(new ToDoItem("Item " + i, (i % 12 + 1) + "/" + (i % 28 + 1) + "/21", i % 3 + 1, ""));
+		}
+		list.get("Item 5");
+		list.contains("Item 2000");
+		list.remove("Item 7");
+
+		if (stats.getCount(ListStats.INSERT) != 1000 || stats.getCount(ListStats.GET) != 2
+				|| stats.getCount(ListStats.REMOVE) != 1 || stats.getVisited(ListStats.GET) != 1) {
+			fail("Operation counts incorrect");
+		}
+		if (stats.getVisited(ListStats.INSERT) == 0 || stats.getSize() != 999 || stats.getMaxSize() != 1000) {
+			fail("Items visited or size incorrect");
+		}
+		if (stats.getLatencyPercentile(ListStats.INSERT, 100) < stats.getLatencyPercentile(ListStats.INSERT, 50)) {
+			fail("Latency histogram incorrect");
+		}
+
+		// bulk changes are recorded once with the number of items they changed
+		List<ToDoItem> batch = new ArrayList<>();
+		for (int i = 1000; i < 1010; i++) {
+			batch.add(new ToDoItem("Item " + i, "6/1/21", 2, ""));
+		}
+		list.insertAll(batch);
+		int removed = 0;
+		for (ToDoItem gone = list.removeIf(item -> item.getPriority() == 1); gone != null; gone = gone.getNext()) {
+			removed++;
+		}
+		if (stats.getCount(ListStats.INSERT_ALL) != 1 || stats.getItems(ListStats.INSERT_ALL) != 10
+				|| stats.getCount(ListStats.REMOVE_ALL) != 1 || stats.getItems(ListStats.REMOVE_ALL) != removed
+				|| stats.getVisited(ListStats.REMOVE_ALL) != 1009 || stats.getCount(ListStats.INSERT) != 1000
+				|| stats.getCount(ListStats.REMOVE) != 1 || removed == 0 || stats.getSize() != 1009 - removed) {
+			fail("Bulk operations recorded incorrectly");
+		}
+
+		list.setMetrics(ListMetrics.NONE);
+		list.insert(toDoItem1);
+		if (stats.getCount(ListStats.INSERT) != 1000) {
+			fail("Metrics recorded after being turned off");
+		}
+	}
+
+	/**
+	 * Tests that the next-due window holds the first items of the list and that
+	 * its version only changes when something inside it changes
+	 */
+	@Test
+	void testWindow() {
+		SortedList list = new SortedList("List");
+		list.setWindowSize(3);
+		Random random = new Random(15);
+		List<ToDoItem> items = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			ToDoItem item = new ToDoItem("Item " + i, (random.nextInt(3) + 1) + "/" + (random.nextInt(3) + 1) + "/21",
+					random.nextInt(3) + 1, "");
+			items.add(item);
+			list.insert(item);
+			if (i % 3 == 0) {
+				list.remove("Item " + random.nextInt(i + 1));
+			}
+			if (i % 7 == 0) {
+				items.get(random.nextInt(items.size())).setDueDate((random.nextInt(3) + 1) + "/" + (random.nextInt(3) + 1) + "/21");
+			}
+			List<ToDoItem> expected = list.stream().limit(3).collect(Collectors.toList());
+			if (!list.getWindow().equals(expected)) {
+				fail("Window does not match the first items after step " + i);
+			}
+		}
+
+		long version = list.getWindowVersion();
+		list.insert(new ToDoItem("Later", "12/1/21", 3, ""));
+		if (list.getWindowVersion() != version) {
+			fail("Window version changed for an item outside the window");
+		}
+		ToDoItem first = list.peekFirst();
+		if (list.pollFirst() != first || list.getWindowVersion() == version || list.contains(first.getName())
+				&& list.get(first.getName()) == first) {
+			fail("Polling the first item did not update the window");
+		}
+		version = list.getWindowVersion();
+		list.get("Later").setNotes("Outside the window");
+		if (list.getWindowVersion() != version) {
+			fail("Window version changed for notes outside the window");
+		}
+		list.peekFirst().setNotes("Shown on the dashboard");
+		long notesVersion = list.getWindowVersion();
+		list.peekFirst().setIsDone(true);
+		if (notesVersion == version || list.getWindowVersion() == notesVersion) {
+			fail("Changing the notes or done flag of a window item did not update the window");
+		}
+	}
+
+	/**
+	 * Tests that inserts placed through the buckets keep the list in order as the
+	 * range of dates grows, shrinks and reaches dates far from the rest
+	 */
+	@Test
+	void testBuckets() {
+		SortedList list = new SortedList("List");
+		Random random = new Random(17);
+		int count = 3000;
+		for (int i = 0; i < count; i++) {
+			// a few days at first, then dates spreading out on both sides
+			int spread = 1 + i / 300;
+			String date = "6/" + (random.nextInt(Math.min(spread, 28)) + 1) + "/" + (20 + random.nextInt(spread) / 28);
+			if (i % 3 == 0) {
+				date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/" + (19 - random.nextInt(spread) / 28);
+			}
+			list.insert(new ToDoItem("Item " + i, date, random.nextInt(3) + 1, null));
+		}
+		checkOrder(list, count);
+
+		// empties most of the range so the buckets shrink, then fills it again
+		for (int i = 0; i < count; i++) {
+			if (list.get("Item " + i).getSortKey() / 10 != DayClock.parseDay("6/1/20") && !list.remove("Item " + i)) {
+				fail("Failed to remove \"Item " + i + "\"");
+			}
+		}
+		checkOrder(list, list.getSize());
+		int kept = list.getSize();
+		for (int i = count; i < count + 500; i++) {
+			list.insert(new ToDoItem("Item " + i, "6/" + (random.nextInt(3) + 1) + "/20", random.nextInt(3) + 1, null));
+		}
+		checkOrder(list, kept + 500);
+
+		// an item moved in place is still last among the items with its new key
+		ToDoItem moved = list.getTail();
+		moved.setDueDate("12/31/20");
+		ToDoItem after = new ToDoItem("Item " + (count + 500), "12/31/20", 3, null);
+		list.insert(after);
+		if (list.getTail() != after || after.getPrev() != moved) {
+			fail("Item not placed after its bucket's last item");
+		}
+		checkOrder(list, kept + 501);
+
+		// items due far from the rest are left out of the buckets but still sorted
+		SortedList outliers = new SortedList("Outliers");
+		outliers.insert(new ToDoItem("Far", "1/1/9999", 2, null));
+		outliers.insert(new ToDoItem("Old", "1/1/1900", 2, null));
+		for (int i = 0; i < 1000; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/" + (20 + random.nextInt(40));
+			outliers.insert(new ToDoItem("Item " + i, date, random.nextInt(3) + 1, null));
+		}
+		outliers.insert(new ToDoItem("Far too", "12/31/9999", 1, null));
+		checkOrder(outliers, 1003);
+		outliers.remove("Far");
+		outliers.remove("Old");
+		outliers.remove("Far too");
+		for (int i = 1000; i < 1500; i++) {
+			outliers.insert(new ToDoItem("Item " + i, "6/" + (random.nextInt(28) + 1) + "/30", 1, null));
+		}
+		checkOrder(outliers, 1500);
+		if (outliers.getHead().getSortKey() / 10 < DayClock.parseDay("1/1/20")) {
+			fail("Outlier not removed");
+		}
+	}
+
+	/**
+	 * Tests that bulk removal takes out every match and keeps the indexes working
+	 */
+	@Test
+	void testRemoveIf() {
+		SortedList list = new SortedList("List");
+		list.setWindowSize(5);
+		Random random = new Random(8);
+		int count = 2000;
+		for (int i = 0; i < count; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/2" + random.nextInt(2);
+			ToDoItem item = new ToDoItem("Item " + (i % 700), date, random.nextInt(3) + 1, null);
+			item.setIsDone(i % 3 == 0);
+			list.insert(item);
+		}
+
+		ToDoItem removed = list.purgeCompleted();
+		int removedCount = 0;
+		ToDoItem last = null;
+		for (ToDoItem item = removed; item != null; item = item.getNext()) {
+			if (!item.getIsDone() || item.getPrev() != last || item.getList() != null) {
+				fail("Removed chain incorrect at " + item.getName());
+			}
+			if (last != null && last.compareItems(item) == 1) {
+				fail("Removed chain out of order at " + item.getName());
+			}
+			last = item;
+			removedCount++;
+		}
+		if (removedCount != (count + 2) / 3 || list.getSize() != count - removedCount) {
+			fail("Wrong number of items removed: " + removedCount);
+		}
+		int left = 0;
+		for (ToDoItem item = list.getHead(); item != null; item = item.getNext()) {
+			if (item.getIsDone() || list.get(item.getName()) == null) {
+				fail("Item left in the list incorrectly: " + item.getName());
+			}
+			if (item.getPrev() != null && item.getPrev().compareItems(item) == 1) {
+				fail("List out of order at " + item.getName());
+			}
+			left++;
+		}
+		if (left != list.getSize() || list.getWindow().size() != 5 || list.getWindow().get(0) != list.getHead()) {
+			fail("List or window incorrect after purge");
+		}
+
+		// the skip index, buckets and name index still work after the bulk removal
+		for (ToDoItem item = removed; item != null; item = item.getNext()) {
+			ToDoItem same = list.get(item.getName());
+			if (same != null && same.getIsDone()) {
+				fail("Name index still holds " + item.getName());
+			}
+		}
+		ToDoItem middle = new ToDoItem("Middle", "6/15/20", 2, null);
+		list.insert(middle);
+		if (list.getFirstAtLeast(middle.getSortKey()).getSortKey() != middle.getSortKey()) {
+			fail("Skip index broken after purge");
+		}
+
+		ToDoItem renamed = list.removeIf(item -> item.getName().equals("Middle") || item.getName().equals("Item 1"));
+		if (renamed == null || list.contains("Middle") || list.contains("Item 1") || list.removeIf(item -> false) != null) {
+			fail("removeIf did not remove the matching items");
+		}
+		ToDoItem oldHead = list.getHead();
+		ToDoItem second = oldHead.getNext();
+		if (list.removeIf(item -> item == oldHead) != oldHead || list.getHead() != second || second.getPrev() != null) {
+			fail("Head not moved when the first item was removed");
+		}
+		list.removeIf(item -> true);
+		if (list.getSize() != 0 || list.getHead() != null || list.getTail() != null || list.getWindow().size() != 0) {
+			fail("List not empty after removing everything");
+		}
+	}
+
+	/**
+	 * Tests that snapshots keep the list as it was while the list changes
+	 */
+	@Test
+	void testSnapshot() throws InterruptedException {
+		SortedList list = new SortedList("List");
+		Random random = new Random(12);
+		for (int i = 0; i < 1000; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/21";
+			list.insert(new ToDoItem("Item " + i, date, random.nextInt(3) + 1, null));
+		}
+		ListSnapshot before = list.snapshot();
+		if (list.snapshot() != before) {
+			fail("Unchanged list gave a new snapshot");
+		}
+		List<ToDoItem> order = new ArrayList<>();
+		list.forEach(order::add);
+
+		// changes to the list after the snapshot do not show in it
+		list.remove("Item 0");
+		list.insert(new ToDoItem("Item 1000", "1/1/21", 1, null));
+		list.get("Item 5").setDueDate("12/31/21");
+		ListSnapshot after = list.snapshot();
+		if (!before.stream().collect(Collectors.toList()).equals(order) || before.getSize() != 1000) {
+			fail("Snapshot changed after the list did");
+		}
+		List<ToDoItem> now = new ArrayList<>();
+		list.forEach(now::add);
+		if (!after.stream().collect(Collectors.toList()).equals(now) || after.get(0) != list.getHead()
+				|| after.getLast() != list.getTail() || after.get(500) != now.get(500)) {
+			fail("New snapshot does not match the list");
+		}
+
+		// a bulk change builds the tree again
+		list.purgeCompleted();
+		list.insertAll(List.of(new ToDoItem("Bulk", "6/6/21", 2, null)));
+		now.clear();
+		list.forEach(now::add);
+		if (!list.snapshot().stream().collect(Collectors.toList()).equals(now)) {
+			fail("Snapshot does not match the list after a bulk change");
+		}
+
+		// readers walk snapshots without locks while the list is changed
+		ListRegistry registry = new ListRegistry(2);
+		registry.addList("Shared");
+		for (int i = 0; i < 500; i++) {
+			registry.insert("Shared", new ToDoItem("Item " + i, "3/" + (i % 28 + 1) + "/21", i % 3 + 1, null));
+		}
+		Thread writer = new Thread(() -> {
+			for (int i = 500; i < 5000; i++) {
+				registry.insert("Shared", new ToDoItem("Item " + i, "3/" + (i % 28 + 1) + "/21", i % 3 + 1, null));
+				registry.remove("Shared", "Item " + (i - 500));
+			}
+		});
+		writer.start();
+		boolean[] broken = new boolean[1];
+		for (int i = 0; i < 200; i++) {
+			ListSnapshot snapshot = registry.snapshot("Shared");
+			int count = 0;
+			int lastKey = Integer.MIN_VALUE;
+			for (ToDoItem item : snapshot) {
+				// the items' keys do not change in this test, so they must stay in order
+				broken[0] |= item.getSortKey() < lastKey;
+				lastKey = item.getSortKey();
+				count++;
+			}
+			broken[0] |= count != snapshot.getSize() || count < 499 || count > 501;
+		}
+		writer.join();
+		if (broken[0] || registry.snapshot("Shared").getSize() != 500 || registry.snapshot("Missing") != null) {
+			fail("Snapshot read while the list changed was inconsistent");
+		}
+	}
+
+	/**
+	 * Tests that the text search finds items by word and follows list changes
+	 */
+	@Test
+	void testSearch() {
+		SortedList list = new SortedList("List");
+		list.insert(new ToDoItem("Call plumber", "3/4/21", 2, "Kitchen sink leaks"));
+		list.insert(new ToDoItem("Pay rent", "3/1/21", 1, "Check the bank first"));
+		list.insert(new ToDoItem("Kitchen shopping", "3/2/21", 3, "Milk, eggs; bread"));
+		list.insert(new ToDoItem("Call bank", "2/27/21", 2, null));
+
+		if (!searchNames(list, "call").equals(List.of("Call bank", "Call plumber"))
+				|| !searchNames(list, "BANK").equals(List.of("Call bank", "Pay rent"))
+				|| !searchNames(list, "kitchen sink").equals(List.of("Call plumber"))
+				|| !searchNames(list, "kit*").equals(List.of("Kitchen shopping", "Call plumber"))
+				|| !searchNames(list, "call pl*").equals(List.of("Call plumber"))
+				|| !searchNames(list, "eggs").equals(List.of("Kitchen shopping"))
+				|| !searchNames(list, "call milk").isEmpty() || !searchNames(list, "nothing").isEmpty()) {
+			fail("Search results incorrect");
+		}
+
+		// the index follows changes made after it was built
+		list.insert(new ToDoItem("Call mom", "1/1/21", 1, "Ask about the bank"));
+		list.remove("Call bank");
+		list.get("Pay rent").setNotes("Online");
+		list.get("Kitchen shopping").setName("Groceries");
+		list.get("Call plumber").setDueDate("1/1/20");
+		if (!searchNames(list, "bank").equals(List.of("Call mom"))
+				|| !searchNames(list, "call").equals(List.of("Call plumber", "Call mom"))
+				|| !searchNames(list, "kitchen").equals(List.of("Call plumber"))
+				|| !searchNames(list, "groceries milk").equals(List.of("Groceries"))) {
+			fail("Search results incorrect after changes");
+		}
+		list.removeIf(item -> item.getName().startsWith("Call"));
+		if (!searchNames(list, "c*").isEmpty() || !searchNames(list, "o*").equals(List.of("Pay rent"))) {
+			fail("Search results incorrect after bulk removal");
+		}
+	}
+
+	private List<String> searchNames(SortedList list, String query) {
+		return list.search(query).stream().map(ToDoItem::getName).collect(Collectors.toList());
+	}
+
+	/**
+	 * Tests that CSV and iCalendar files are imported and bad records refused
+	 */
+	@Test
+	void testListImporter(@TempDir Path directory) throws IOException {
+		Random random = new Random(4);
+		StringBuilder csv = new StringBuilder("name,dueDate,priority,notes\r\n");
+		SortedList expected = new SortedList("Expected");
+		expected.insert(new ToDoItem("Existing", "6/1/21", 2, null));
+		for (int i = 0; i < 3000; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/2" + random.nextInt(2);
+			int priority = random.nextInt(3) + 1;
+			csv.append("Item ").append(i).append(',').append(date).append(',').append(priority)
+					.append(",\"Notes, \"\"quoted\"\" ").append(i).append("\"\r\n");
+			expected.insert(new ToDoItem("Item " + i, date, priority, "Notes, \"quoted\" " + i));
+		}
+		Path csvFile = directory.resolve("items.csv");
+		Files.writeString(csvFile, csv);
+
+		ListImporter importer = new ListImporter();
+		importer.setThreads(4);
+		importer.setChunkSize(256);
+		SortedList list = new SortedList("List");
+		list.insert(new ToDoItem("Existing", "6/1/21", 2, null));
+		if (importer.importCsv(csvFile, list) != 3000) {
+			fail("Wrong number of items imported");
+		}
+		ToDoItem imported = list.getHead();
+		for (ToDoItem item = expected.getHead(); item != null; item = item.getNext()) {
+			if (!item.getAllInfo().equals(imported.getAllInfo()) || item.getSortKey() != imported.getSortKey()) {
+				fail("Imported item out of place: " + imported.getName());
+			}
+			imported = imported.getNext();
+		}
+		if (imported != null || list.getSize() != 3001 || !list.contains("Item 2999")) {
+			fail("Imported list incorrect");
+		}
+
+		for (String bad : new String[] { "high", "0", "10" }) {
+			Files.writeString(csvFile, "Good,1/2/21,1,\nBad,1/2/21," + bad + ",\n");
+			try {
+				importer.importCsv(csvFile, list);
+				fail("Bad record was not refused");
+			} catch (IOException e) {
+				if (list.getSize() != 3001 || list.contains("Good")) {
+					fail("List changed by a failed import");
+				}
+			}
+		}
+
+		Path icsFile = directory.resolve("items.ics");
+		Files.writeString(icsFile, "BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"
+				+ "BEGIN:VTODO\r\nSUMMARY:Pay rent\r\nDUE;VALUE=DATE:20210301\r\nPRIORITY:1\r\nEND:VTODO\r\n"
+				+ "BEGIN:VTODO\r\nSUMMARY:Call\r\n  plumber\r\nDUE:20210215T090000Z\r\nPRIORITY:9\r\n"
+				+ "DESCRIPTION:Sink\\, tap\\nand pipe\r\nSTATUS:COMPLETED\r\nEND:VTODO\r\n"
+				+ "BEGIN:VTODO\r\nSUMMARY:Someday\r\nEND:VTODO\r\nEND:VCALENDAR\r\n");
+		SortedList calendar = new SortedList("Calendar");
+		if (importer.importIcs(icsFile, calendar) != 2) {
+			fail("Wrong number of tasks imported");
+		}
+		ToDoItem first = calendar.getHead();
+		ToDoItem second = first.getNext();
+		if (!first.getName().equals("Call plumber") || !first.getDueDate().equals("2/15/21") || first.getPriority() != 3
+				|| !first.getNotes().equals("Sink, tap\nand pipe") || !first.getIsDone()
+				|| !second.getName().equals("Pay rent") || second.getPriority() != 1 || second.getIsDone()
+				|| second.getSortKey() != new ToDoItem("Pay rent", "3/1/21", 1, null).getSortKey()) {
+			fail("Tasks imported incorrectly");
+		}
+
+		for (String due : new String[] { "20261340", "20260230", "20260100" }) {
+			Files.writeString(icsFile, "BEGIN:VCALENDAR\r\nBEGIN:VTODO\r\nSUMMARY:Bad\r\nDUE:" + due
+					+ "\r\nEND:VTODO\r\nEND:VCALENDAR\r\n");
+			try {
+				importer.importIcs(icsFile, calendar);
+				fail("Task due on a date that does not exist was not refused: " + due);
+			} catch (IOException e) {
+				if (calendar.getSize() != 2) {
+					fail("List changed by a failed import");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that the published changes, applied to a copy, give the same list
+	 */
+	@Test
+	void testListChanges() throws InterruptedException {
+		SortedList list = new SortedList("List");
+		list.insert(new ToDoItem("Before", "1/1/21", 2, null));
+		List<ToDoItem> mirror = new ArrayList<>(List.of(list.getHead()));
+		List<List<ListChange>> batches = new ArrayList<>();
+		CountDownLatch closed = new CountDownLatch(1);
+		ListChanges changes = new ListChanges();
+		changes.subscribe(new Flow.Subscriber<List<ListChange>>() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(List<ListChange> batch) {
+				batches.add(batch);
+			}
+
+			@Override
+			public void onError(Throwable error) {
+			}
+
+			@Override
+			public void onComplete() {
+				closed.countDown();
+			}
+		});
+		list.setChanges(changes);
+
+		Random random = new Random(30);
+		for (int i = 0; i < 300; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/21";
+			list.insert(new ToDoItem("Item " + i, date, random.nextInt(3) + 1, null));
+		}
+		changes.flush();
+		for (int i = 0; i < 300; i += 3) {
+			list.remove("Item " + i);
+			list.get("Item " + (i + 1)).setDueDate((random.nextInt(12) + 1) + "/1/21");
+			list.get("Item " + (i + 2)).setIsDone(true);
+		}
+		list.get("Item 1").setNotes("New notes");
+		changes.flush();
+		list.insertAll(List.of(new ToDoItem("Bulk 1", "3/3/21", 1, null), new ToDoItem("Bulk 2", "3/3/21", 1, null)));
+		list.purgeCompleted();
+		list.pollFirst();
+		changes.close();
+		if (!closed.await(5, TimeUnit.SECONDS)) {
+			fail("Subscriber was not told the changes were closed");
+		}
+
+		long version = 0;
+		int fieldChanges = 0;
+		for (List<ListChange> batch : batches) {
+			for (ListChange change : batch) {
+				if (change.getVersion() != ++version) {
+					fail("Change versions not in order");
+				}
+				if (change.getType() == ListChange.REMOVED || change.getType() == ListChange.MOVED) {
+					mirror.remove(change.getItem());
+				}
+				if (change.getType() == ListChange.INSERTED || change.getType() == ListChange.MOVED) {
+					mirror.add(mirror.indexOf(change.getBefore()) + 1, change.getItem());
+				}
+				if (change.getType() == ListChange.CHANGED) {
+					fieldChanges++;
+				}
+			}
+		}
+		List<ToDoItem> items = new ArrayList<>();
+		list.forEach(items::add);
+		if (batches.size() != 3 || version != changes.getVersion() || fieldChanges != 101 || !mirror.equals(items)) {
+			fail("Changes applied to a copy did not give the same list");
+		}
+	}
+
+	/**
+	 * Tests that items are found by position and paged as the list changes
+	 */
+	@Test
+	void testPositions() {
+		SortedList list = new SortedList("List");
+		Random random = new Random(24);
+		for (int i = 0; i < 1000; i++) {
+			String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/2" + random.nextInt(2);
+			list.insert(new ToDoItem("Item " + i, date, random.nextInt(3) + 1, null));
+		}
+		checkPositions(list);
+
+		// the widths are kept through every kind of change once positions are used
+		int next = 1000;
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 50; i++) {
+				String date = (random.nextInt(12) + 1) + "/" + (random.nextInt(28) + 1) + "/2" + random.nextInt(2);
+				int change = random.nextInt(4);
+				if (change == 0) {
+					list.insert(new ToDoItem("Item " + next++, date, random.nextInt(3) + 1, null));
+				} else if (change == 1) {
+					list.remove("Item " + random.nextInt(next));
+				} else if (change == 2 && list.getSize() > 0) {
+					list.reschedule(list.get(random.nextInt(list.getSize())), date, random.nextInt(3) + 1);
+				} else {
+					list.pollFirst();
+				}
+			}
+			if (round % 5 == 0) {
+				List<ToDoItem> batch = new ArrayList<>();
+				for (int i = 0; i < 30; i++) {
+					batch.add(new ToDoItem("Item " + next++, "1/1/2" + random.nextInt(2), 1, null));
+				}
+				list.insertAll(batch);
+			}
+			checkPositions(list);
+		}
+
+		// a page keeps its place when its last item is removed or moved
+		ListPage page = list.getPageAfter(null, 10);
+		ToDoItem cursor = page.getItems().get(9);
+		ToDoItem following = cursor.getNext();
+		list.remove(cursor.getName());
+		if (list.rankOf(cursor) != -1 || list.getPageAfter(page, 5).getItems().get(0) != following
+				|| list.getPage(9, 5).get(0) != following) {
+			fail("Page lost its place after its last item was removed");
+		}
+		page = list.getPageAfter(null, 10);
+		cursor = page.getItems().get(9);
+		following = cursor.getNext();
+		list.reschedule(cursor, "12/31/29", 3);
+		if (list.getPageAfter(page, 5).getItems().get(0) != following) {
+			fail("Page lost its place after its last item was rescheduled");
+		}
+		int paged = 0;
+		for (page = list.getPageAfter(null, 7); !page.isEmpty(); page = list.getPageAfter(page, 7)) {
+			paged += page.getItems().size();
+		}
+		if (paged != list.getSize() || !list.getPage(list.getSize(), 5).isEmpty()) {
+			fail("Paging did not cover the list");
+		}
+
+		list.clear();
+		try {
+			list.get(0);
+			fail("Position in an empty list did not throw");
+		} catch (IndexOutOfBoundsException e) {
+		}
+		list.insert(new ToDoItem("B", "2/1/20", 1, null));
+		list.insert(new ToDoItem("A", "1/1/20", 1, null));
+		checkPositions(list);
+	}
+
+	/**
+	 * Checks get and rankOf against a walk down the list
+	 */
+	private void checkPositions(SortedList list) {
+		int index = 0;
+		for (ToDoItem item = list.getHead(); item != null; item = item.getNext()) {
+			if (list.get(index) != item || list.rankOf(item) != index) {
+				fail("Wrong position for " + item.getName() + " at " + index);
+			}
+			index++;
+		}
+		if (index != list.getSize()) {
+			fail("List size incorrect");
+		}
+	}
+
+	/**
+	 * Tests that recurring items are listed without storing their occurrences
+	 */
+	@Test
+	void testRecurring() {
+		SortedList list = new SortedList("List");
+		RecurringItem daily = new RecurringItem("Water plants", "1/1/21", 1, "12/31/21", 2, null);
+		RecurringItem weekly = new RecurringItem("Trash", "1/4/21", 7, 1, "Mondays");
+		list.addRecurring(daily);
+		list.addRecurring(weekly);
+		list.insert(new ToDoItem("Stored", "1/4/21", 1, null));
+		list.insert(new ToDoItem("Late", "12/1/20", 3, null));
+
+		// a year of a daily task is listed without storing any occurrences
+		int count = 0;
+		int lastKey = Integer.MIN_VALUE;
+		for (Iterator<ToDoItem> items = list.getRange("1/1/21", "12/31/21"); items.hasNext();) {
+			ToDoItem item = items.next();
+			if (item.getSortKey() < lastKey) {
+				fail("Occurrences out of order at " + item.getName() + " " + item.getDueDate());
+			}
+			lastKey = item.getSortKey();
+			count++;
+		}
+		if (count != 365 + 52 + 1 || list.getSize() != 2 || daily.getExceptionCount() != 0) {
+			fail("Wrong number of occurrences: " + count);
+		}
+
+		// stored items come before occurrences with the same sort key
+		Iterator<ToDoItem> items = list.getRange("1/4/21", "1/4/21");
+		ToDoItem stored = items.next();
+		ToDoItem trash = items.next();
+		ToDoItem water = items.next();
+		if (!stored.getName().equals("Stored") || trash.getRecurrence() != weekly || !trash.getDueDate().equals("1/4/21")
+				|| water.getRecurrence() != daily || items.hasNext()) {
+			fail("Occurrences merged incorrectly on 1/4/21");
+		}
+
+		// skipping and finishing occurrences only keeps those days
+		daily.skip(DayClock.parseDay("1/2/21"));
+		water.setIsDone(true);
+		if (daily.getExceptionCount() != 2 || daily.skip(DayClock.parseDay("1/1/22"))) {
+			fail("Exceptions kept incorrectly");
+		}
+		count = 0;
+		boolean done = false;
+		for (items = list.getRange("1/1/21", "1/7/21", 2, 2); items.hasNext();) {
+			ToDoItem item = items.next();
+			done |= item.getIsDone() && item.getDueDate().equals("1/4/21");
+			count++;
+		}
+		if (count != 6 || !done) {
+			fail("Skipped or done occurrence listed incorrectly");
+		}
+
+		// the next thing to do skips what is done
+		long[] now = { noon(2021, 1, 4) };
+		list.setClock(testClock(now));
+		if (!list.peekNextDue().getName().equals("Stored")) {
+			fail("Next due item should be the stored item");
+		}
+		list.remove("Stored");
+		ToDoItem next = list.peekNextDue();
+		if (next == null || next.getRecurrence() != weekly) {
+			fail("Next due item incorrect: " + (next == null ? null : next.getName()));
+		}
+		list.removeRecurring(weekly);
+		next = list.peekNextDue();
+		if (next == null || !next.getDueDate().equals("1/5/21")) {
+			fail("Next due item incorrect after removing a template");
+		}
+
+		// overdue items and the late count only cover stored items
+		int overdue = 0;
+		for (Iterator<ToDoItem> late = list.getOverdue(); late.hasNext(); late.next()) {
+			overdue++;
+		}
+		if (overdue != 1 || list.getLateCount() != 1) {
+			fail("Overdue items and late count disagree: " + overdue + " and " + list.getLateCount());
+		}
+
+		// occurrences before 1970 have negative day numbers and are still listed
+		SortedList old = new SortedList("Old");
+		old.addRecurring(new RecurringItem("Old daily", "12/25/1969", 1, "1/2/1970", 2, null));
+		count = 0;
+		for (Iterator<ToDoItem> days = old.getRange("1/1/1969", "1/1/1971", 1, 3); days.hasNext(); days.next()) {
+			count++;
+		}
+		if (count != 9) {
+			fail("Occurrences before 1970 listed incorrectly: " + count);
+		}
+
+		// clearing the list removes its items but keeps its templates
+		list.clear();
+		if (list.getSize() != 0 || !list.getRecurring().equals(List.of(daily)) || list.peekNextDue() == null) {
+			fail("Clearing the list did not keep its templates");
+		}
+	}
+
+	/**
+	 * Tests that a list written in the binary format is read back the same from a
+	 * file and from a buffer, and that unknown versions and
+	 * corrupt lists are refused
+	 */
+	@Test
+	void testListFormat(@TempDir Path directory) throws IOException {
+		SortedList list = new SortedList("Binary List");
+		list.insert(toDoItem3);
+		list.insert(toDoItem1);
+		list.insert(new ToDoItem("\u00dcn\u00efc\u00f6d\u00e9", "2/21/21", 2, null));
+		toDoItem3.setIsDone(true);
+
+		Path file = directory.resolve("list.bin");
+		ListFormat.write(list, file);
+		SortedList fromFile = ListFormat.read(file);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ListFormat.write(list, Channels.newChannel(bytes));
+		SortedList fromBuffer = ListFormat.read(ByteBuffer.wrap(bytes.toByteArray()));
+
+		for (SortedList copy : new SortedList[] { fromFile, fromBuffer }) {
+			ToDoItem original = list.getHead();
+			for (ToDoItem item = copy.getHead(); item != null; item = item.getNext()) {
+				if (!item.getAllInfo().equals(original.getAllInfo()) || item.getSortKey() != original.getSortKey()) {
+					fail("Item read back incorrectly: " + item.getName());
+				}
+				original = original.getNext();
+			}
+			if (original != null || !copy.getListName().equals("Binary List") || copy.getSize() != 3) {
+				fail("List read back incorrectly");
+			}
+		}
+
+		ToDoItem single = ListFormat.decode(ListFormat.encode(toDoItem1));
+		if (!single.getAllInfo().equals(toDoItem1.getAllInfo())) {
+			fail("Single item read back incorrectly");
+		}
+
+		byte[] newer = bytes.toByteArray();
+		newer[7] = 2; // version 2
+		try {
+			ListFormat.read(ByteBuffer.wrap(newer));
+			fail("Newer version was not refused");
+		} catch (IOException e) {
+			// expected
+		}
+
+		byte[] huge = bytes.toByteArray();
+		huge[8] = 0x7f; // item count over two billion
+		byte[] badName = bytes.toByteArray();
+		badName[12] = 0x7f; // list name length over two billion
+		byte[] cut = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 5);
+		for (byte[] corrupt : new byte[][] { huge, badName, cut }) {
+			try {
+				ListFormat.read(ByteBuffer.wrap(corrupt));
+				fail("Corrupt list was not refused");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
 }
\ No newline at end of file
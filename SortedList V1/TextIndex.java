@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Class that indexes the words in the names and notes of a SortedList's items so
+ * they can be searched without walking the list.
+ *
+ * Text is split into words at every character that is not a letter or digit,
+ * and words are compared without case. Each word keeps a posting list of the
+ * items that contain it, ordered by the item's stamp, which is the same order as
+ * the list. A search for several words steps through their posting lists
+ * together, jumping each one ahead to the next item the others agree on, so the
+ * hits come out in due date order and only items near a hit are looked at.
+ *
+ * @author Jacob
+ */
+public class TextIndex {
+
+	private final TreeMap<String, TreeMap<Long, ToDoItem>> words; // the items containing each word, by stamp
+
+	/**
+	 * Constructor that creates an empty index
+	 */
+	TextIndex() {
+		words = new TreeMap<>();
+	}
+
+	/**
+	 * Adds an item's name and notes to the index
+	 *
+	 * @param toDoItem: the item to add, with its stamp set
+	 */
+	void add(ToDoItem toDoItem) {
+		add(toDoItem, toDoItem.getName());
+		add(toDoItem, toDoItem.getNotes());
+	}
+
+	/**
+	 * Removes an item's name and notes from the index
+	 *
+	 * @param toDoItem: the item to remove
+	 */
+	void remove(ToDoItem toDoItem) {
+		remove(toDoItem, toDoItem.getName());
+		remove(toDoItem, toDoItem.getNotes());
+	}
+
+	/**
+	 * Adds the words in some text to the index for an item
+	 *
+	 * @param toDoItem: the item the text belongs to
+	 * @param text:     the text, or null
+	 */
+	void add(ToDoItem toDoItem, String text) {
+		for (String word : split(text)) {
+			words.computeIfAbsent(word, key -> new TreeMap<>()).put(toDoItem.getStamp(), toDoItem);
+		}
+	}
+
+	/**
+	 * Removes the words in some text from the index for an item. A word that is
+	 * also in the item's other field is left for it, so the text of both fields
+	 * is passed back through add afterwards when only one of them changed.
+	 *
+	 * @param toDoItem: the item the text belongs to
+	 * @param text:     the text, or null
+	 */
+	void remove(ToDoItem toDoItem, String text) {
+		for (String word : split(text)) {
+			TreeMap<Long, ToDoItem> posting = words.get(word);
+			if (posting != null && posting.remove(toDoItem.getStamp()) != null && posting.isEmpty()) {
+				words.remove(word);
+			}
+		}
+	}
+
+	/**
+	 * Finds the items that contain every word in a query, in list order. A word
+	 * ending in '*' matches any word that starts with it.
+	 *
+	 * @param query: the words to search for
+	 * @return the matching items in due date order, empty if the query has no words
+	 */
+	List<ToDoItem> search(String query) {
+		List<ToDoItem> hits = new ArrayList<>();
+		String[] parts = query.trim().split("\\s+");
+		List<NavigableMap<Long, ToDoItem>> postings = new ArrayList<>();
+		for (String part : parts) {
+			boolean prefix = part.endsWith("*");
+			List<String> partWords = split(part);
+			for (int i = 0; i < partWords.size(); i++) {
+				NavigableMap<Long, ToDoItem> posting = (prefix && i == partWords.size() - 1)
+						? prefixPosting(partWords.get(i))
+						: words.get(partWords.get(i));
+				if (posting == null) {
+					return hits; // a word no item has
+				}
+				postings.add(posting);
+			}
+		}
+		if (postings.isEmpty()) {
+			return hits;
+		}
+		// the shortest posting list goes first since it moves the others furthest
+		postings.sort(Comparator.comparingInt(Map::size));
+
+		long target = Long.MIN_VALUE; // the smallest stamp a hit can have
+		int agreed = 0; // the number of posting lists in a row that hold target
+		for (int i = 0;; i = (i + 1) % postings.size()) {
+			Map.Entry<Long, ToDoItem> next = postings.get(i).ceilingEntry(target);
+			if (next == null) {
+				return hits;
+			}
+			if (next.getKey() == target) {
+				agreed++;
+			} else {
+				target = next.getKey();
+				agreed = 1;
+			}
+			if (agreed == postings.size()) {
+				hits.add(next.getValue());
+				if (target == Long.MAX_VALUE) {
+					return hits;
+				}
+				target++;
+				agreed = 0;
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the items containing any word that starts with a prefix
+	 *
+	 * @param prefix: the start of the words
+	 * @return the items ordered by stamp, or null if no word starts with prefix
+	 */
+	private NavigableMap<Long, ToDoItem> prefixPosting(String prefix) {
+		NavigableMap<String, TreeMap<Long, ToDoItem>> matches = words.subMap(prefix, true, prefix + Character.MAX_VALUE,
+				false);
+		if (matches.isEmpty()) {
+			return null;
+		}
+		if (matches.size() == 1) {
+			return matches.firstEntry().getValue();
+		}
+		TreeMap<Long, ToDoItem> posting = new TreeMap<>();
+		for (TreeMap<Long, ToDoItem> match : matches.values()) {
+			posting.putAll(match);
+		}
+		return posting;
+	}
+
+	/**
+	 * Function that splits text into lower case words
+	 *
+	 * @param text: the text to split, or null
+	 * @return the words in the text
+	 */
+	static List<String> split(String text) {
+		List<String> split = new ArrayList<>();
+		if (text == null) {
+			return split;
+		}
+		int start = -1; // where the current word started, -1 between words
+		for (int i = 0; i <= text.length(); i++) {
+			boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (inWord && start < 0) {
+				start = i;
+			} else if (!inWord && start >= 0) {
+				split.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return split;
+	}
+}
@@ -1,6 +1,3 @@
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
 /*
  * Class to create a new ToDoItem
  */
@@ -8,13 +5,18 @@ public class ToDoItem {
 
 	private ToDoItem next; // next ToDoItem in the list from this item
 	private ToDoItem prev; // previous ToDoItem in the list from this item
+	private ToDoItem[] skip; // next ToDoItem on each skip index level this item is on
+	private int[] width; // the number of items each skip link moves forward
+	private ToDoItem sameName; // next ToDoItem in the list with the same name as this item
+	private SortedList list; // the list this item is in, null if it is in none
+	private long stamp; // the item's sort key and place among equal keys in its list
+	private RecurringItem recurrence; // the template this item is an occurrence of, null if it is stored
 	private String name; // name of the event
 	private String dueDate; // the due date of the project (in number form)
 	private int priority; // high medium or low priority for sorting
 	private String notes; // any notes related to the item
-	private boolean isLate; // true if the item is late and false otherwise
 	private boolean isDone; // true if the item is done and false otherwise
-	private int sortNum; // used for sorting
+	private int sortKey; // used for sorting, the due day number times ten plus the priority
 
 	/**
 	 * Constructor for the ToDoItem. All fields will be filled or required by the
@@ -32,8 +34,26 @@ public class ToDoItem {
 		this.priority = priority;
 		this.notes = notes;
 		this.isDone = false; // automatically initialized to false because the item is new
-		this.sortNum = findSortNum(dueDate); // findSortNum creates the variable using the due date
-		this.isLate = setIsLate(sortNum); // automatically marks the item late if it is past the due date
+		this.sortKey = findSortKey(dueDate); // findSortKey creates the variable using the due date
+	}
+
+	/**
+	 * Constructor for a ToDoItem whose sort key was already worked out, as when
+	 * reading saved items back in, so the due date is not parsed again
+	 * 
+	 * @param name:     the name of the ToDoItem
+	 * @param dueDate:  the date the item is due
+	 * @param priority: high (1), medium (2), or low (3) priority
+	 * @param notes:    the description for the item
+	 * @param sortKey:  the item's sort key, as given by findSortKey
+	 */
+	public ToDoItem(String name, String dueDate, int priority, String notes, int sortKey) {
+		this.name = name;
+		this.dueDate = dueDate;
+		this.priority = priority;
+		this.notes = notes;
+		this.isDone = false;
+		this.sortKey = sortKey;
 	}
 
 	/**
@@ -60,7 +80,7 @@ public class ToDoItem {
 			currPriority = "Could not get priority";
 			break;
 		}
-		late = (isLate) ? "Yes" : "No"; // sets late to Yes if isLate is true and No otherwise
+		late = (getIsLate()) ? "Yes" : "No"; // sets late to Yes if the item is late and No otherwise
 		done = (isDone) ? "Yes" : "No"; // sets done to Yes if isDone is true and No otherwise
 
 		return "Name: " + name + "\nDue Date: " + dueDate + "\nPriority: " + currPriority + "\nNotes: " + notes
@@ -76,45 +96,33 @@ public class ToDoItem {
 	 * @return the correctly formatted sorting number
 	 */
 	public int findSortNum(String date) {
-		String[] dateSplit = date.split("/");
-		// checks if the date was entered "M/dd/yy" and adjusts the number if needed
-		if (dateSplit[0].length() == 1) {
-			dateSplit[0] = 0 + dateSplit[0];
-		}
-		// checks if the date was entered "MM/d/yy" and adjusts the number if needed
-		if (dateSplit[1].length() == 1) {
-			dateSplit[1] = 0 + dateSplit[1];
-		}
+		return DayClock.yyMMdd(DayClock.parseDay(date)) * 10 + priority;
+	}
 
-		// moves the year to the beginning of the string to allow for sorting across years
-		String temp = "" + dateSplit[2] + dateSplit[0] + dateSplit[1] + priority;
-		System.out.println(temp);
-		
-		return Integer.parseInt(temp);
+	/**
+	 * Function that takes in a string containing the date in the format "MM/dd/yy" and
+	 * converts it to the sortKey value. The resulting number is the day number of the
+	 * date times ten plus the priority, so it sorts the same way as the sortNum but is
+	 * read straight from the date without building any strings.
+	 * 
+	 * @param date: the date to be converted to a sorting key
+	 * @return the sorting key for the date and this item's priority
+	 */
+	public int findSortKey(String date) {
+		return DayClock.parseDay(date) * 10 + priority;
 	}
 
 	/**
 	 * Function that compares a due date against the current date to check if the item
 	 * is late and should be marked late
 	 * 
-	 * @param num
-	 * @return
+	 * @param day: a sort number in the form yyMMddp
+	 * @return true if today is on or after the date
 	 */
 	public boolean setIsLate(int day) {
-		try {
-			Date date = new Date();
-			SimpleDateFormat dateFormat = new SimpleDateFormat("MM/dd/yy");
-			String dateString = dateFormat.format(date);		
-			int today = findSortNum(dateString); // uses the findSortNum to format the date for comparison
-
-			// if today's date, when formatted, is less than the due date, then the item is not late
-			if (today < day) {
-				return false;
-			}
-		} catch (Exception e) { // if the date can't be retrieved
-			return false;
-		}
-		return true;
+		int today = DayClock.yyMMdd(DayClock.system().today()) * 10 + priority;
+		// if today's date, when formatted, is less than the due date, then the item is not late
+		return today >= day;
 	}
 
 	/**
@@ -149,6 +157,108 @@ public class ToDoItem {
 		prev = toDoItem;
 	}
 
+	/**
+	 * Retrieves the number of skip index levels this item is on
+	 * 
+	 * @return the item's height in the index, 0 if it is only in the list
+	 */
+	public int getLevels() {
+		return (skip == null) ? 0 : skip.length;
+	}
+
+	/**
+	 * Sets the number of skip index levels this item is on, clearing any links it
+	 * had on them
+	 */
+	public void setLevels(int levels) {
+		skip = (levels == 0) ? null : new ToDoItem[levels];
+		width = (levels == 0) ? null : new int[levels];
+	}
+
+	/**
+	 * Retrieves the next item on a skip index level from this item
+	 * 
+	 * @param level: the index level, starting at 1
+	 * @return the next ToDoItem on that level
+	 */
+	public ToDoItem getSkip(int level) {
+		return skip[level - 1];
+	}
+
+	/**
+	 * Sets the next item on a skip index level from this item
+	 */
+	public void setSkip(int level, ToDoItem toDoItem) {
+		skip[level - 1] = toDoItem;
+	}
+
+	/**
+	 * Retrieves how many places in the list the link on a skip index level moves
+	 * forward, counting to one past the tail if it is the last link
+	 * 
+	 * @param level: the index level, starting at 1
+	 * @return the width of the link
+	 */
+	public int getWidth(int level) {
+		return width[level - 1];
+	}
+
+	/**
+	 * Sets how many places in the list the link on a skip index level moves
+	 * forward
+	 */
+	public void setWidth(int level, int newWidth) {
+		width[level - 1] = newWidth;
+	}
+
+	/**
+	 * Retrieves the next item in the list with the same name as this item
+	 * 
+	 * @return the next same-named ToDoItem
+	 */
+	public ToDoItem getSameName() {
+		return sameName;
+	}
+
+	/**
+	 * Sets the next item in the list with the same name as this item
+	 */
+	public void setSameName(ToDoItem toDoItem) {
+		sameName = toDoItem;
+	}
+
+	/**
+	 * Retrieves the list this item is in
+	 * 
+	 * @return the SortedList holding this item, or null
+	 */
+	public SortedList getList() {
+		return list;
+	}
+
+	/**
+	 * Sets the list this item is in
+	 */
+	public void setList(SortedList sortedList) {
+		list = sortedList;
+	}
+
+	/**
+	 * Retrieves the item's stamp, which orders it the same way as its list does
+	 * 
+	 * @return the key given by ListSnapshot.key
+	 */
+	long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Sets the item's stamp
+	 */
+	void setStamp(long newStamp) {
+		stamp = newStamp;
+	}
+
 	/**
 	 * Gets the name of the item
 	 * 
@@ -159,12 +269,16 @@ public class ToDoItem {
 	}
 
 	/**
-	 * Sets the name of the item
+	 * Sets the name of the item, updating the name index of the list it is in
 	 * 
 	 * @return the previous ToDoItem
 	 */
 	public void setName(String newName) {
+		String oldName = name;
 		name = newName;
+		if (list != null) {
+			list.nameChanged(this, oldName);
+		}
 	}
 
 	/**
@@ -177,10 +291,15 @@ public class ToDoItem {
 	}
 
 	/**
-	 * Sets the due date of the item
+	 * Sets the due date of the item. If the item is in a list it is moved to its
+	 * new position.
 	 */
 	public void setDueDate(String newDueDate) {
-		dueDate = newDueDate;
+		if (list != null) {
+			list.reschedule(this, newDueDate, priority);
+		} else {
+			schedule(newDueDate, priority, DayClock.parseDay(newDueDate) * 10 + priority);
+		}
 	}
 
 	/**
@@ -193,10 +312,29 @@ public class ToDoItem {
 	}
 
 	/**
-	 * Sets the due date of the item
+	 * Sets the priority of the item. If the item is in a list it is moved to its
+	 * new position.
 	 */
 	public void setPriority(int newPriority) {
+		if (list != null) {
+			list.reschedule(this, dueDate, newPriority);
+		} else {
+			// only the priority digit of the sort key changes
+			schedule(dueDate, newPriority, sortKey - priority + newPriority);
+		}
+	}
+
+	/**
+	 * Sets the due date, priority and sort key together, without moving the item
+	 * 
+	 * @param newDueDate:  the new due date
+	 * @param newPriority: the new priority
+	 * @param newSortKey:  the sort key for the due date and priority
+	 */
+	void schedule(String newDueDate, int newPriority, int newSortKey) {
+		dueDate = newDueDate;
 		priority = newPriority;
+		sortKey = newSortKey;
 	}
 
 	/**
@@ -212,23 +350,33 @@ public class ToDoItem {
 	 * Sets the item's notes
 	 */
 	public void setNotes(String newNotes) {
+		String oldNotes = notes;
 		notes = newNotes;
+		if (list != null) {
+			list.notesChanged(this, oldNotes);
+		}
 	}
 
 	/**
-	 * Gets the isLate variable for the item
+	 * Checks if the item is late, which it is from the start of its due day. The
+	 * day is read from the clock of the item's list, or the system clock if it is
+	 * in none. Nothing is changed, so readers on several threads may call it.
 	 * 
-	 * @return the item's isLate variable
+	 * @return true if today is on or after the due day
 	 */
 	public boolean getIsLate() {
-		return isLate;
+		DayClock clock = (list == null) ? DayClock.system() : list.getClock();
+		return Math.floorDiv(sortKey, 10) <= clock.today();
 	}
 
 	/**
-	 * Sets the isLate variable
+	 * Does nothing. Whether an item is late is worked out by getIsLate from its
+	 * due day and the clock, so it can not be set.
+	 * 
+	 * @deprecated change the due date instead
 	 */
+	@Deprecated
 	public void setIsLate(boolean newIsLet) {
-		isLate = newIsLet;
 	}
 
 	
@@ -238,7 +386,7 @@ public class ToDoItem {
 	 * @return the item's isDone variable
 	 */
 	public boolean getIsDone() {
-		return isLate;
+		return isDone;
 	}
 
 	/**
@@ -246,16 +394,47 @@ public class ToDoItem {
 	 */
 	public void setIsDone(boolean newIsDone) {
 		isDone = newIsDone;
+		if (list != null) {
+			list.doneChanged(this);
+		}
+		if (recurrence != null) { // the template keeps it, since this copy is not stored
+			recurrence.setDone(Math.floorDiv(sortKey, 10), newIsDone);
+		}
+	}
+
+	/**
+	 * Gets the recurring template this item is an occurrence of
+	 * 
+	 * @return the template, or null if the item is stored in a list
+	 */
+	public RecurringItem getRecurrence() {
+		return recurrence;
+	}
+
+	/**
+	 * Sets the recurring template this item is an occurrence of
+	 */
+	void setRecurrence(RecurringItem newRecurrence) {
+		recurrence = newRecurrence;
 	}
 
 
 	/**
-	 * Gets the sortNum variable for the item
+	 * Gets the sortNum variable for the item, in the form yyMMddp
 	 * 
 	 * @return the item's sortNum variable
 	 */
 	public int getSortNum() {
-		return sortNum;
+		return DayClock.yyMMdd(Math.floorDiv(sortKey, 10)) * 10 + Math.floorMod(sortKey, 10);
+	}
+
+	/**
+	 * Gets the sortKey variable for the item
+	 * 
+	 * @return the item's sortKey variable
+	 */
+	public int getSortKey() {
+		return sortKey;
 	}
 
 	/**
@@ -268,9 +447,9 @@ public class ToDoItem {
 	 * @return
 	 */
 	public int compareItems(ToDoItem item) {
-		if (this.sortNum > item.getSortNum()) {
+		if (this.sortKey > item.getSortKey()) {
 			return 1;
-		} else if (this.sortNum < item.getSortNum()) {
+		} else if (this.sortKey < item.getSortKey()) {
 			return -1;
 		} else {
 			return 0;
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+import benchmarks.ListEngine;
+
+/**
+ * Runs the benchmark operations against SortedList, the linked list baseline.
+ *
+ * @author Jacob
+ */
+public class SortedListEngine implements ListEngine {
+
+	private String[] names;
+	private String[] dates;
+	private int[] priorities;
+	private ToDoItem[] items; // the loaded items, reused by every build
+	private SortedList list; // the last list built
+
+	@Override
+	public void load(String[] names, String[] dates, int[] priorities) {
+		this.names = names;
+		this.dates = dates;
+		this.priorities = priorities;
+		items = new ToDoItem[names.length];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = create(i);
+		}
+	}
+
+	@Override
+	public Object build() {
+		list = new SortedList("Benchmark");
+		for (ToDoItem item : items) {
+			list.insert(item);
+		}
+		return list;
+	}
+
+	@Override
+	public Object buildAll() {
+		list = new SortedList("Benchmark");
+		list.insertAll(Arrays.asList(items));
+		return list;
+	}
+
+	@Override
+	public Object get(int i) {
+		return list.get(names[i]);
+	}
+
+	@Override
+	public boolean contains(int i) {
+		return list.contains(names[i]);
+	}
+
+	@Override
+	public boolean removeAndInsert(int i) {
+		boolean removed = list.remove(names[i]);
+		list.insert(items[i]);
+		return removed;
+	}
+
+	@Override
+	public long traverse() {
+		long sum = 0;
+		for (ToDoItem item = list.getHead(); item != null; item = item.getNext()) {
+			sum += item.getSortKey();
+		}
+		return sum;
+	}
+
+	@Override
+	public ToDoItem create(int i) {
+		return new ToDoItem(names[i], dates[i], priorities[i], "");
+	}
+}
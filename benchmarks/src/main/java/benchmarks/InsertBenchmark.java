@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times building a whole list, one insert at a time and as a batch, for several
+ * patterns of due dates and list sizes.
+ *
+ * @author Jacob
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InsertBenchmark {
+
+	@Param({ "SortedListEngine", "ConcurrentSortedListEngine" })
+	public String engine;
+
+	@Param({ "ascending", "descending", "random", "clustered" })
+	public String pattern;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private ListEngine list;
+
+	@Setup
+	public void setup() {
+		list = new Workloads(pattern, size, 42).load(engine);
+	}
+
+	@Benchmark
+	public Object insert() {
+		return list.build();
+	}
+
+	@Benchmark
+	public Object insertAll() {
+		return list.buildAll();
+	}
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times creating a ToDoItem, which parses its due date into a sort key.
+ *
+ * @author Jacob
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ItemBenchmark {
+
+	private static final int ITEMS = 1024; // the number of different items to copy
+
+	private ListEngine list;
+	private int next; // the item the next call copies
+
+	@Setup
+	public void setup() {
+		list = new Workloads("random", ITEMS, 42).load("SortedListEngine");
+	}
+
+	@Benchmark
+	public Object create() {
+		next = (next + 1) & (ITEMS - 1);
+		return list.create(next);
+	}
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+/**
+ * The operations the benchmarks time against a list implementation. JMH only
+ * accepts benchmark classes inside a package while the list classes live in the
+ * default package, so each list is driven through an engine class in the default
+ * package that implements this interface and is loaded by name.
+ *
+ * @author Jacob
+ */
+public interface ListEngine {
+
+	/**
+	 * Creates the items the other operations work with. This is not timed.
+	 *
+	 * @param names:      the name of each item
+	 * @param dates:      the due date of each item, as "M/d/yy"
+	 * @param priorities: the priority of each item
+	 */
+	void load(String[] names, String[] dates, int[] priorities);
+
+	/**
+	 * Builds a new list by inserting every loaded item one at a time
+	 *
+	 * @return the list, so the work is not optimized away
+	 */
+	Object build();
+
+	/**
+	 * Builds a new list by inserting every loaded item in one batch
+	 *
+	 * @return the list, so the work is not optimized away
+	 */
+	Object buildAll();
+
+	/**
+	 * Looks up an item of the last built list by name
+	 *
+	 * @param i: the number of the loaded item to find
+	 * @return the item found
+	 */
+	Object get(int i);
+
+	/**
+	 * Checks the last built list for an item's name
+	 *
+	 * @param i: the number of the loaded item to find
+	 * @return true if the item is in the list
+	 */
+	boolean contains(int i);
+
+	/**
+	 * Removes an item from the last built list by name and inserts it again so the
+	 * list keeps its size
+	 *
+	 * @param i: the number of the loaded item to remove
+	 * @return true if the item was removed
+	 */
+	boolean removeAndInsert(int i);
+
+	/**
+	 * Walks the last built list from head to tail
+	 *
+	 * @return the sum of the items' sort keys
+	 */
+	long traverse();
+
+	/**
+	 * Creates a new ToDoItem from the strings of a loaded item
+	 *
+	 * @param i: the number of the loaded item to copy
+	 * @return the new item
+	 */
+	Object create(int i);
+}
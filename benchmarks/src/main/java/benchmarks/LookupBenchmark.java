@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times lookups and removals by name and a full walk of the list, on a list built
+ * from randomly ordered due dates.
+ *
+ * @author Jacob
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LookupBenchmark {
+
+	@Param({ "SortedListEngine", "ConcurrentSortedListEngine" })
+	public String engine;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private ListEngine list;
+	private int next; // the item the next lookup uses, stepping through the list
+
+	@Setup
+	public void setup() {
+		list = new Workloads("random", size, 42).load(engine);
+		list.build();
+	}
+
+	/**
+	 * Steps to a different item each call so lookups are spread over the list
+	 */
+	private int nextItem() {
+		next += 7919; // a prime step visits every item before repeating
+		next %= size;
+		return next;
+	}
+
+	@Benchmark
+	public Object get() {
+		return list.get(nextItem());
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return list.contains(nextItem());
+	}
+
+	@Benchmark
+	public boolean remove() {
+		return list.removeAndInsert(nextItem());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long traverse() {
+		return list.traverse();
+	}
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Builds the item names, due dates and priorities used by the benchmarks, and
+ * loads list engines by name.
+ *
+ * @author Jacob
+ */
+public final class Workloads {
+
+	private static final LocalDate START = LocalDate.of(2021, 1, 1); // the earliest due date
+	private static final int SPAN = 3650; // the number of days the due dates are spread over
+	private static final int CLUSTERS = 16; // the number of busy weeks in the clustered pattern
+
+	private final String[] names;
+	private final String[] dates;
+	private final int[] priorities;
+
+	/**
+	 * Generates the items for a pattern of due dates
+	 *
+	 * @param pattern: ascending, descending, random or clustered
+	 * @param size:    the number of items
+	 * @param seed:    the seed for the random numbers
+	 */
+	public Workloads(String pattern, int size, long seed) {
+		Random random = new Random(seed);
+		int[] centers = new int[CLUSTERS];
+		for (int i = 0; i < CLUSTERS; i++) {
+			centers[i] = random.nextInt(SPAN);
+		}
+		names = new String[size];
+		dates = new String[size];
+		priorities = new int[size];
+		for (int i = 0; i < size; i++) {
+			int day;
+			switch (pattern) {
+			case "ascending":
+				day = (int) ((long) i * SPAN / size);
+				break;
+			case "descending":
+				day = (int) ((long) (size - 1 - i) * SPAN / size);
+				break;
+			case "random":
+				day = random.nextInt(SPAN);
+				break;
+			case "clustered":
+				day = centers[random.nextInt(CLUSTERS)] + random.nextInt(7);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown pattern: " + pattern);
+			}
+			LocalDate date = START.plusDays(day);
+			names[i] = "Item " + i;
+			dates[i] = date.getMonthValue() + "/" + date.getDayOfMonth() + "/" + (date.getYear() % 100);
+			priorities[i] = random.nextInt(3) + 1;
+		}
+	}
+
+	/**
+	 * Creates an engine by class name and loads these items into it
+	 *
+	 * @param engine: the name of a ListEngine class in the default package
+	 * @return the loaded engine
+	 */
+	public ListEngine load(String engine) {
+		ListEngine listEngine;
+		try {
+			listEngine = (ListEngine) Class.forName(engine).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Unknown engine: " + engine, e);
+		}
+		listEngine.load(names, dates, priorities);
+		return listEngine;
+	}
+}